@@ -0,0 +1,79 @@
+package com.google.code.donkirkby;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Classifies every character of a synthetic text, by char and by code
+ * point.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CharacterClassifierBenchmark {
+	@Param({"100000"})
+	public int textLength;
+
+	private CharacterClassifier classifier;
+	private String text;
+
+	@Setup
+	public void setUp() {
+		classifier = new CharacterClassifier();
+		text = new SyntheticCorpus(1).nextText(textLength);
+	}
+
+	@Benchmark
+	public int isChineseByChar() {
+		int chineseCount = 0;
+		for (int i = 0; i < text.length(); i++) {
+			if (classifier.isChinese(text.charAt(i)))
+			{
+				chineseCount++;
+			}
+		}
+		return chineseCount;
+	}
+
+	@Benchmark
+	public int isChineseByCodePoint() {
+		int chineseCount = 0;
+		for (int i = 0; i < text.length(); ) {
+			int codePoint = text.codePointAt(i);
+			if (classifier.isChinese(codePoint))
+			{
+				chineseCount++;
+			}
+			i += Character.charCount(codePoint);
+		}
+		return chineseCount;
+	}
+
+	@Benchmark
+	public int isJapaneseByCodePoint() {
+		int japaneseCount = 0;
+		for (int i = 0; i < text.length(); ) {
+			int codePoint = text.codePointAt(i);
+			if (classifier.isJapanese(codePoint))
+			{
+				japaneseCount++;
+			}
+			i += Character.charCount(codePoint);
+		}
+		return japaneseCount;
+	}
+}
@@ -0,0 +1,114 @@
+package com.google.code.donkirkby;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * Loads the bundled frequency lists, and ranks synthetic texts against
+ * them. The ranking benchmarks report the time to rank all the texts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RankFinderBenchmark {
+	@Param({"4400"})
+	public int maxCharacters;
+
+	@Param({"10000"})
+	public int textCount;
+
+	@Param({"20"})
+	public int textLength;
+
+	private RankFinder rankFinder;
+	private CharacterClassifier classifier;
+	private List<String> texts;
+
+	@Setup
+	public void setUp() {
+		rankFinder = loadFromText();
+		classifier = new CharacterClassifier();
+		texts = new SyntheticCorpus(1).nextTexts(textCount, textLength);
+	}
+
+	@Benchmark
+	public RankFinder loadFromText() {
+		DefaultRankReader characterReader = new DefaultRankReader();
+		characterReader.setResource(
+				new ClassPathResource("/character_frequency_utf8.txt"));
+		characterReader.setHeaderLineCount(8);
+		DefaultRankReader wordReader = new DefaultRankReader();
+		wordReader.setResource(
+				new ClassPathResource("/phrase_frequency_utf8.txt"));
+		return load(characterReader, wordReader);
+	}
+
+	@Benchmark
+	public RankFinder loadFromIndex() {
+		IndexedRankReader characterReader = new IndexedRankReader();
+		characterReader.setResource(
+				new ClassPathResource("/frequency_index.bin"));
+		IndexedRankReader wordReader = new IndexedRankReader();
+		wordReader.setResource(
+				new ClassPathResource("/frequency_index.bin"));
+		wordReader.setReadingWords(true);
+		return load(characterReader, wordReader);
+	}
+
+	private RankFinder load(
+			RankReader characterReader, 
+			RankReader wordReader) {
+		RankFinder finder = new RankFinder();
+		finder.setCharacterReader(characterReader);
+		finder.setWordReader(wordReader);
+		finder.setMaxCharacters(maxCharacters);
+		finder.load();
+		return finder;
+	}
+
+	@Benchmark
+	public void getRanks(Blackhole blackhole) {
+		for (String text : texts) {
+			blackhole.consume(rankFinder.getRanks(text, classifier));
+		}
+	}
+
+	@Benchmark
+	public void maxRank(Blackhole blackhole) {
+		for (String text : texts) {
+			blackhole.consume(rankFinder.maxRank(text, classifier));
+		}
+	}
+
+	@Benchmark
+	public void splitWords(Blackhole blackhole) {
+		for (String text : texts) {
+			blackhole.consume(rankFinder.splitWords(text));
+		}
+	}
+
+	@Benchmark
+	public PackedRanks bulkRank() {
+		BulkRanker ranker = new BulkRanker();
+		ranker.setRankFinder(rankFinder);
+		ranker.setClassifier(classifier);
+		return ranker.rank(texts);
+	}
+}
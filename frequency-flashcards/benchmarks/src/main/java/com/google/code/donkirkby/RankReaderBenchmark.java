@@ -0,0 +1,86 @@
+package com.google.code.donkirkby;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * Reads every item from the bundled frequency lists and from a synthetic
+ * word list of configurable size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RankReaderBenchmark {
+	@Param({"100000"})
+	public int syntheticWordCount;
+
+	private File syntheticFile;
+
+	@Setup
+	public void setUp() throws IOException {
+		syntheticFile = File.createTempFile("synthetic_words", ".txt");
+		new SyntheticCorpus(1).writeWordFile(syntheticFile, syntheticWordCount);
+	}
+
+	@TearDown
+	public void tearDown() {
+		syntheticFile.delete();
+	}
+
+	private static int readAll(Resource resource, int headerLineCount) {
+		DefaultRankReader reader = new DefaultRankReader();
+		reader.setResource(resource);
+		reader.setHeaderLineCount(headerLineCount);
+		int itemCount = 0;
+		reader.open();
+		try
+		{
+			while (reader.hasNext())
+			{
+				reader.nextItem();
+				itemCount++;
+			}
+		}finally
+		{
+			reader.close();
+		}
+		return itemCount;
+	}
+
+	@Benchmark
+	public int readCharacterFile() {
+		return readAll(
+				new ClassPathResource("/character_frequency_utf8.txt"), 
+				8);
+	}
+
+	@Benchmark
+	public int readWordFile() {
+		return readAll(new ClassPathResource("/phrase_frequency_utf8.txt"), 0);
+	}
+
+	@Benchmark
+	public int readSyntheticFile() {
+		return readAll(new FileSystemResource(syntheticFile), 0);
+	}
+}
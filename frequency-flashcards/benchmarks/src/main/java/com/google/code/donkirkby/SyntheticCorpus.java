@@ -0,0 +1,135 @@
+package com.google.code.donkirkby;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * Generates repeatable text for the benchmarks. Characters are drawn from
+ * the bundled character frequency list with a skew towards the common ones,
+ * mixed with some rare CJK characters, kana, ASCII and punctuation, so the
+ * text looks roughly like sentences or tweets.
+ */
+public class SyntheticCorpus {
+	private static final String PUNCTUATION = "，。！？「」 ";
+
+	private List<String> characters = new ArrayList<String>();
+	private Random random;
+
+	/**
+	 * @param seed makes the text the same from one run to the next
+	 */
+	public SyntheticCorpus(long seed) {
+		random = new Random(seed);
+		DefaultRankReader reader = new DefaultRankReader();
+		reader.setResource(
+				new ClassPathResource("/character_frequency_utf8.txt"));
+		reader.setHeaderLineCount(8);
+		reader.open();
+		try
+		{
+			while (reader.hasNext())
+			{
+				characters.add(reader.nextItem());
+			}
+		}finally
+		{
+			reader.close();
+		}
+	}
+
+	/**
+	 * @return a character whose rank follows a rough Zipf distribution.
+	 */
+	private String nextCharacter() {
+		double x = random.nextDouble();
+		int rank = (int)(characters.size() * x * x * x);
+		return characters.get(rank);
+	}
+
+	/**
+	 * Generate one text.
+	 * @param length how many characters it should have
+	 */
+	public String nextText(int length) {
+		StringBuilder builder = new StringBuilder(length + 1);
+		while (builder.length() < length)
+		{
+			int kind = random.nextInt(100);
+			if (kind < 80)
+			{
+				builder.append(nextCharacter());
+			}else if (kind < 88)
+			{
+				builder.append(PUNCTUATION.charAt(
+						random.nextInt(PUNCTUATION.length())));
+			}else if (kind < 95)
+			{
+				builder.append((char)('a' + random.nextInt(26)));
+			}else if (kind < 98)
+			{
+				// Rare characters from Extension A and B.
+				builder.appendCodePoint(
+						random.nextBoolean()
+						? 0x3400 + random.nextInt(0x19B6)
+						: 0x20000 + random.nextInt(0xA6D7));
+			}else
+			{
+				builder.append((char)('ぁ' + random.nextInt(0x56)));
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Generate many texts.
+	 * @param count how many texts
+	 * @param meanLength the average length of a text, in characters
+	 */
+	public List<String> nextTexts(int count, int meanLength) {
+		List<String> texts = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			texts.add(nextText(1 + random.nextInt(2 * meanLength)));
+		}
+		return texts;
+	}
+
+	/**
+	 * Write a word frequency file in the same format as the bundled 
+	 * phrase list, with words made of common characters.
+	 * @param file where to write it
+	 * @param wordCount how many words to write
+	 */
+	public void writeWordFile(File file, int wordCount) {
+		try {
+			PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+					new FileOutputStream(file),
+					"UTF-8"));
+			try
+			{
+				for (int i = 0; i < wordCount; i++) {
+					int length = 2 + random.nextInt(3);
+					StringBuilder word = new StringBuilder();
+					for (int j = 0; j < length; j++) {
+						word.append(nextCharacter());
+					}
+					writer.println(word + "\t" + (wordCount - i));
+				}
+			}finally
+			{
+				writer.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(
+					"Failed to write " + file + ".",
+					e);
+		}
+	}
+}
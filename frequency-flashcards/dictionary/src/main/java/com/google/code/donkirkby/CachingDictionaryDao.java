@@ -0,0 +1,319 @@
+package com.google.code.donkirkby;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wraps another DictionaryDao and remembers the results of its queries,
+ * including empty ones. The cache holds at most maxWeight entries in
+ * total (each cached result weighs one more than its length), and
+ * evicts the least recently used results first. Results can also expire
+ * after timeToLive milliseconds.
+ *
+ * EntryValue objects are mutable, so the cache stores its own copies and
+ * returns new copies from every query. Two threads that miss on the same
+ * query at the same time may both send it to the wrapped DAO.
+ */
+public class CachingDictionaryDao implements DictionaryDao {
+	private static final EntryValue[] NO_ENTRIES = new EntryValue[0];
+
+	private DictionaryDao dao;
+	private int maxWeight = 100000;
+	private long timeToLive;
+	private final LinkedHashMap<Key, CachedResult> cache =
+		new LinkedHashMap<Key, CachedResult>(16, 0.75f, true);
+	private int totalWeight;
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	public EntryValue[] findAllEntryValuesByTraditionalCharacter(
+			String character, int maxResults) {
+		Key key = new Key(false, character, maxResults);
+		EntryValue[] cachedEntries = get(key);
+		if (cachedEntries != null)
+		{
+			return cachedEntries;
+		}
+		EntryValue[] entries =
+			dao.findAllEntryValuesByTraditionalCharacter(character, maxResults);
+		return put(key, entries);
+	}
+
+	public Map<String, EntryValue[]> findAllEntryValuesByTraditionalCharacters(
+			Collection<String> characters, int maxResults) {
+		return findAll(characters, maxResults, false);
+	}
+
+	public Map<String, EntryValue[]> findAllEntryValuesContainingCharacters(
+			Collection<String> characters, int maxResults) {
+		return findAll(characters, maxResults, true);
+	}
+
+	/**
+	 * Answer a batch query from the cache where possible, and send only
+	 * the missing characters to the wrapped DAO in a single batch.
+	 */
+	private Map<String, EntryValue[]> findAll(
+			Collection<String> characters,
+			int maxResults,
+			boolean isContaining) {
+		Map<String, EntryValue[]> results =
+			new LinkedHashMap<String, EntryValue[]>();
+		List<String> missingCharacters = new ArrayList<String>();
+		for (String character : characters) {
+			EntryValue[] cachedEntries =
+				get(new Key(isContaining, character, maxResults));
+			if (cachedEntries == null)
+			{
+				missingCharacters.add(character);
+			}else if (cachedEntries.length > 0)
+			{
+				results.put(character, cachedEntries);
+			}
+		}
+		if ( ! missingCharacters.isEmpty())
+		{
+			Map<String, EntryValue[]> foundEntries =
+				isContaining
+				? dao.findAllEntryValuesContainingCharacters(
+						missingCharacters,
+						maxResults)
+				: dao.findAllEntryValuesByTraditionalCharacters(
+						missingCharacters,
+						maxResults);
+			for (String character : missingCharacters) {
+				EntryValue[] entries = foundEntries.get(character);
+				entries = put(
+						new Key(isContaining, character, maxResults),
+						entries == null ? NO_ENTRIES : entries);
+				if (entries.length > 0)
+				{
+					results.put(character, entries);
+				}
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * @return a copy of the cached entries, or null if they aren't cached.
+	 */
+	private EntryValue[] get(Key key) {
+		synchronized (cache) {
+			CachedResult result = cache.get(key);
+			if (result != null && result.isExpired(currentTimeMillis()))
+			{
+				remove(key);
+				result = null;
+			}
+			if (result == null)
+			{
+				missCount++;
+				return null;
+			}
+			hitCount++;
+			return copy(result.entries);
+		}
+	}
+
+	/**
+	 * Cache a copy of some entries.
+	 * @return the entries
+	 */
+	private EntryValue[] put(Key key, EntryValue[] entries) {
+		CachedResult result = new CachedResult(
+				copy(entries),
+				timeToLive > 0 ? currentTimeMillis() + timeToLive : 0);
+		synchronized (cache) {
+			CachedResult oldResult = cache.put(key, result);
+			if (oldResult != null)
+			{
+				totalWeight -= oldResult.getWeight();
+			}
+			totalWeight += result.getWeight();
+			Iterator<Map.Entry<Key, CachedResult>> iterator =
+				cache.entrySet().iterator();
+			while (totalWeight > maxWeight && iterator.hasNext())
+			{
+				Map.Entry<Key, CachedResult> eldest = iterator.next();
+				if (eldest.getValue() == result)
+				{
+					// Don't evict the result that was just added.
+					break;
+				}
+				totalWeight -= eldest.getValue().getWeight();
+				iterator.remove();
+				evictionCount++;
+			}
+		}
+		return entries;
+	}
+
+	private void remove(Key key) {
+		CachedResult result = cache.remove(key);
+		if (result != null)
+		{
+			totalWeight -= result.getWeight();
+			evictionCount++;
+		}
+	}
+
+	private static EntryValue[] copy(EntryValue[] entries) {
+		EntryValue[] copies = new EntryValue[entries.length];
+		for (int i = 0; i < entries.length; i++) {
+			copies[i] = entries[i].copy();
+		}
+		return copies;
+	}
+
+	/**
+	 * Check the clock. Tests can override this.
+	 */
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Remove all the cached results, but keep the counters.
+	 */
+	public void clear() {
+		synchronized (cache) {
+			cache.clear();
+			totalWeight = 0;
+		}
+	}
+
+	public DictionaryDao getDao() {
+		return dao;
+	}
+
+	/**
+	 * @param dao the DAO to send queries to when they aren't cached.
+	 */
+	public void setDao(DictionaryDao dao) {
+		this.dao = dao;
+	}
+
+	public int getMaxWeight() {
+		return maxWeight;
+	}
+
+	/**
+	 * @param maxWeight the most entries to cache, counting each result
+	 * as one extra entry. Defaults to 100000.
+	 */
+	public void setMaxWeight(int maxWeight) {
+		this.maxWeight = maxWeight;
+	}
+
+	public long getTimeToLive() {
+		return timeToLive;
+	}
+
+	/**
+	 * @param timeToLive how many milliseconds to keep each result, or 0 to
+	 * keep them until they're evicted. Defaults to 0.
+	 */
+	public void setTimeToLive(long timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+
+	public long getHitCount() {
+		synchronized (cache) {
+			return hitCount;
+		}
+	}
+
+	public long getMissCount() {
+		synchronized (cache) {
+			return missCount;
+		}
+	}
+
+	/**
+	 * @return how many results were evicted to make room or because they
+	 * expired.
+	 */
+	public long getEvictionCount() {
+		synchronized (cache) {
+			return evictionCount;
+		}
+	}
+
+	/**
+	 * @return how many results are cached.
+	 */
+	public int getSize() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	@Override
+	public String toString() {
+		synchronized (cache) {
+			return String.format(
+					"CachingDictionaryDao(size=%1$d, hits=%2$d, misses=%3$d, " +
+					"evictions=%4$d)",
+					cache.size(),
+					hitCount,
+					missCount,
+					evictionCount);
+		}
+	}
+
+	private static final class Key {
+		private final boolean isContaining;
+		private final String character;
+		private final int maxResults;
+
+		public Key(boolean isContaining, String character, int maxResults) {
+			this.isContaining = isContaining;
+			this.character = character;
+			this.maxResults = maxResults;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if ( ! (obj instanceof Key))
+			{
+				return false;
+			}
+			Key other = (Key) obj;
+			return isContaining == other.isContaining &&
+				maxResults == other.maxResults &&
+				character.equals(other.character);
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = character.hashCode();
+			hash = 31 * hash + maxResults;
+			return isContaining ? ~hash : hash;
+		}
+	}
+
+	private static final class CachedResult {
+		private final EntryValue[] entries;
+		/** When the result expires, or 0 if it never does. */
+		private final long expiryTime;
+
+		public CachedResult(EntryValue[] entries, long expiryTime) {
+			this.entries = entries;
+			this.expiryTime = expiryTime;
+		}
+
+		public boolean isExpired(long now) {
+			return expiryTime != 0 && now >= expiryTime;
+		}
+
+		public int getWeight() {
+			return entries.length + 1;
+		}
+	}
+}
@@ -1,7 +1,13 @@
 package com.google.code.donkirkby;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Dictionary;
+import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class CustomDictionaryDao implements DictionaryDao {
 	private static Dictionary<String, EntryValue> customEntries =
@@ -45,4 +51,44 @@ public class CustomDictionaryDao implements DictionaryDao {
 		return new EntryValue[] { entry };
 	}
 
+	@Override
+	public Map<String, EntryValue[]> findAllEntryValuesByTraditionalCharacters(
+			Collection<String> characters, int maxResults) {
+		Map<String, EntryValue[]> results = 
+			new LinkedHashMap<String, EntryValue[]>();
+		for (String character : characters) {
+			EntryValue[] entries = 
+				findAllEntryValuesByTraditionalCharacter(character, maxResults);
+			if (entries.length > 0)
+			{
+				results.put(character, entries);
+			}
+		}
+		return results;
+	}
+
+	@Override
+	public Map<String, EntryValue[]> findAllEntryValuesContainingCharacters(
+			Collection<String> characters, int maxResults) {
+		Map<String, EntryValue[]> results = 
+			new LinkedHashMap<String, EntryValue[]>();
+		for (String character : characters) {
+			List<EntryValue> entries = new ArrayList<EntryValue>();
+			Enumeration<EntryValue> allEntries = customEntries.elements();
+			while (allEntries.hasMoreElements() && entries.size() < maxResults)
+			{
+				EntryValue entry = allEntries.nextElement();
+				if (entry.getTraditionalChars().contains(character))
+				{
+					entries.add(entry);
+				}
+			}
+			if ( ! entries.isEmpty())
+			{
+				results.put(character, entries.toArray(new EntryValue[0]));
+			}
+		}
+		return results;
+	}
+
 }
@@ -0,0 +1,180 @@
+package com.google.code.donkirkby;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Remembers a hash of the inputs for each deck file that was written, so
+ * a later run can skip the decks whose inputs haven't changed. Each
+ * finished deck is appended to the file as soon as it's written, so a run
+ * that crashes can pick up where it left off.
+ *
+ * Each line of the file is a deck file name, a tab, and a hash. If a deck
+ * appears more than once, the last line wins.
+ */
+public class DeckManifest {
+	private final File file;
+	private final Map<String, String> hashes = new HashMap<String, String>();
+	/** Decks that were written or found unchanged during this run. */
+	private final Set<String> currentDecks = new HashSet<String>();
+
+	private DeckManifest(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Read a manifest file.
+	 * @param file the manifest, which doesn't have to exist yet
+	 * @return the loaded manifest
+	 */
+	public static DeckManifest load(File file) {
+		DeckManifest manifest = new DeckManifest(file);
+		if ( ! file.exists())
+		{
+			return manifest;
+		}
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(file),
+					"UTF-8"));
+			try
+			{
+				String line;
+				while ((line = reader.readLine()) != null)
+				{
+					int tabIndex = line.lastIndexOf('\t');
+					if (tabIndex > 0)
+					{
+						manifest.hashes.put(
+								line.substring(0, tabIndex),
+								line.substring(tabIndex + 1));
+					}
+				}
+			}finally
+			{
+				reader.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(
+					"Failed to read deck manifest " + file + ".",
+					e);
+		}
+		return manifest;
+	}
+
+	/**
+	 * Hash a deck's inputs.
+	 * @param inputs a description of everything that goes into the deck
+	 * @return the hash as hex digits
+	 */
+	public static String hash(String inputs) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			byte[] hash = digest.digest(inputs.getBytes("UTF-8"));
+			StringBuilder hex = new StringBuilder(hash.length * 2);
+			for (byte b : hash) {
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+				hex.append(Character.forDigit(b & 0xF, 16));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("Failed to hash deck inputs.", e);
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to hash deck inputs.", e);
+		}
+	}
+
+	/**
+	 * Check whether a deck file was already written from the same inputs.
+	 * If it was, it counts as part of this run.
+	 * @param deckName the deck's file name
+	 * @param hash the hash of the deck's inputs
+	 * @return true if the deck file exists and has the same hash.
+	 */
+	public synchronized boolean isCurrent(String deckName, String hash) {
+		boolean isCurrent =
+			hash.equals(hashes.get(deckName)) &&
+			new File(deckName).exists();
+		if (isCurrent)
+		{
+			currentDecks.add(deckName);
+		}
+		return isCurrent;
+	}
+
+	/**
+	 * Record that a deck file was written, and save the record right away.
+	 * @param deckName the deck's file name
+	 * @param hash the hash of the deck's inputs
+	 */
+	public synchronized void record(String deckName, String hash) {
+		hashes.put(deckName, hash);
+		currentDecks.add(deckName);
+		try {
+			Writer writer = new OutputStreamWriter(
+					new FileOutputStream(file, true),
+					"UTF-8");
+			try
+			{
+				writer.write(deckName + "\t" + hash + "\n");
+			}finally
+			{
+				writer.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(
+					"Failed to write deck manifest " + file + ".",
+					e);
+		}
+	}
+
+	/**
+	 * Rewrite the file with one line for each deck from this run, and
+	 * drop decks that this run didn't produce.
+	 */
+	public synchronized void compact() {
+		Map<String, String> currentHashes = new TreeMap<String, String>();
+		for (String deckName : currentDecks) {
+			currentHashes.put(deckName, hashes.get(deckName));
+		}
+		File tempFile = new File(file.getPath() + ".tmp");
+		try {
+			Writer writer = new OutputStreamWriter(
+					new FileOutputStream(tempFile),
+					"UTF-8");
+			try
+			{
+				for (Map.Entry<String, String> entry : currentHashes.entrySet()) {
+					writer.write(entry.getKey() + "\t" + entry.getValue() + "\n");
+				}
+			}finally
+			{
+				writer.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(
+					"Failed to write deck manifest " + tempFile + ".",
+					e);
+		}
+		if ( ! file.delete() && file.exists() || ! tempFile.renameTo(file))
+		{
+			throw new RuntimeException(
+					"Failed to replace deck manifest " + file + ".");
+		}
+		hashes.clear();
+		hashes.putAll(currentHashes);
+	}
+}
@@ -1,53 +1,186 @@
 package com.google.code.donkirkby;
 
-import java.io.PrintWriter;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * Writes flash cards in Mnemosyne's XML format. Either give it a writer,
+ * or let it open a buffered file with open(), and then close() it.
+ */
 public class DeckWriter {
-	private PrintWriter printer;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final String lineSeparator = System.getProperty("line.separator");
 	private Writer writer;
 	private int cardNumber;
-	
+
+	/**
+	 * Open a deck file as UTF-8 with a large buffer. The file is
+	 * compressed with gzip if its name ends with ".gz".
+	 */
+	public void open(String fileName)
+	{
+		OutputStream outStream = null;
+		try {
+			outStream = new FileOutputStream(fileName);
+			if (fileName.endsWith(".gz"))
+			{
+				outStream = new GZIPOutputStream(outStream, BUFFER_SIZE);
+			}
+			setWriter(new BufferedWriter(
+					new OutputStreamWriter(outStream, "UTF-8"),
+					BUFFER_SIZE));
+		} catch (IOException e) {
+			if (outStream != null)
+			{
+				try {
+					outStream.close();
+				} catch (IOException e2) {
+					// Report the first error.
+				}
+			}
+			throw new RuntimeException(
+					"Failed to open deck file " + fileName + ".",
+					e);
+		}
+	}
+
+	/**
+	 * Flush and close the writer.
+	 */
+	public void close()
+	{
+		try {
+			writer.close();
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to close deck.", e);
+		}
+	}
+
 	public void writeHeader()
 	{
-		printer.println("<?xml version='1.0' encoding='UTF-8'?>");
-		printer.println("<mnemosyne core_version='1'>");
+		writeLine("<?xml version='1.0' encoding='UTF-8'?>");
+		writeLine("<mnemosyne core_version='1'>");
 
 	}
-	
+
 	public void writeCategory(String categoryName)
 	{
-		printer.println("<category active='1'>");
-		printer.println("<name>" + escape(categoryName) + "</name>");
-		printer.println("</category>");
+		writeLine("<category active='1'>");
+		writeElement("name", categoryName);
+		writeLine("</category>");
 	}
-	
+
 	public void writeCard(String categoryName, String question, String answer)
 	{
-		printer.println("<item id='_" + cardNumber++ + "'>");
-		printer.println("<cat>" + escape(categoryName) + "</cat>");
-		printer.println("<Q>" + escape(question) + "</Q>");
-		printer.println("<A>" + escape(answer) + "</A>");
-		printer.println("</item>");
+		write("<item id='_");
+		write(Integer.toString(cardNumber++));
+		writeLine("'>");
+		writeElement("cat", categoryName);
+		writeElement("Q", question);
+		writeElement("A", answer);
+		writeLine("</item>");
 	}
 
-	private String escape(String text) {
-		return text
-			.replaceAll("&", "&amp;")
-			.replaceAll("<", "&lt;")
-			.replaceAll(">", "&gt;");
+	private void writeElement(String tag, String text) {
+		try {
+			writer.write('<');
+			writer.write(tag);
+			writer.write('>');
+			writeEscaped(text);
+			writer.write("</");
+			writer.write(tag);
+			writer.write('>');
+			writer.write(lineSeparator);
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to write deck.", e);
+		}
 	}
-	
+
+	/**
+	 * Escape the text in one pass, copying the runs between special
+	 * characters straight to the writer.
+	 */
+	private void writeEscaped(String text) throws IOException {
+		int start = 0;
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			String replacement;
+			switch (text.charAt(i)) {
+			case '&':
+				replacement = "&amp;";
+				break;
+			case '<':
+				replacement = "&lt;";
+				break;
+			case '>':
+				replacement = "&gt;";
+				break;
+			default:
+				continue;
+			}
+			writer.write(text, start, i - start);
+			writer.write(replacement);
+			start = i + 1;
+		}
+		writer.write(text, start, length - start);
+	}
+
 	public void writeFooter()
 	{
-		printer.println("</mnemosyne>");
+		writeLine("</mnemosyne>");
 	}
-	
+
+	/**
+	 * Copy some text that another DeckWriter already wrote, like a
+	 * deck's word cards and footer.
+	 */
+	public void writeFormatted(String text)
+	{
+		write(text);
+	}
+
+	private void writeLine(String text) {
+		write(text);
+		write(lineSeparator);
+	}
+
+	private void write(String text) {
+		try {
+			writer.write(text);
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to write deck.", e);
+		}
+	}
+
 	public Writer getWriter() {
 		return writer;
 	}
+
+	/**
+	 * @param writer where to write the cards. Nothing is buffered
+	 * beyond what the writer does itself.
+	 */
 	public void setWriter(Writer writer) {
 		this.writer = writer;
-		this.printer = new PrintWriter(writer);
+	}
+
+	/**
+	 * @return the id number of the next card.
+	 */
+	public int getCardNumber() {
+		return cardNumber;
+	}
+
+	/**
+	 * @param cardNumber the id number for the next card. Defaults to 0.
+	 */
+	public void setCardNumber(int cardNumber) {
+		this.cardNumber = cardNumber;
 	}
 }
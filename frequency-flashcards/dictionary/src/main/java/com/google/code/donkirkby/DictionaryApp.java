@@ -1,18 +1,28 @@
 package com.google.code.donkirkby;
 
 import java.io.BufferedReader;
-import java.io.FileOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -25,6 +35,13 @@ import org.springframework.context.support.ClassPathXmlApplicationContext;
 public class DictionaryApp 
 {
 	private static Log log = LogFactory.getLog(DictionaryApp.class);
+	/** The most characters or words to look up at once. */
+	private static final int LOOKUP_BATCH_SIZE = 100;
+	/** 
+	 * Part of every deck's input hash. Change it when the card format 
+	 * changes, so all the decks get written again.
+	 */
+	private static final String DECK_FORMAT_VERSION = "1";
 	
 	private DictionaryDao dao;
 	private RankReader characterReader;
@@ -43,6 +60,11 @@ public class DictionaryApp
 	private int wordsPerDeck = -1;
 	private int characterLimit;
 	private boolean isQuizRequested = false;
+	private int prefetchCount = 2;
+	private int prefetchThreadCount = 2;
+	private int deckThreadCount;
+	private String manifestFile;
+	private DeckManifest manifest;
 	
     public static void main( String[] args )
     {
@@ -77,79 +99,120 @@ public class DictionaryApp
 		int totalNumCards = 0;
 		int totalNumCharacters = 0;
 		int totalNumWords = 0;
+		// Look up the next few batches on worker threads, while the main 
+		// thread builds summaries and writes decks in order.
+		ExecutorService executor = 
+			prefetchCount > 0
+			? Executors.newFixedThreadPool(prefetchThreadCount)
+			: null;
+		LinkedList<Future<CharacterLookup>> lookups = 
+			new LinkedList<Future<CharacterLookup>>();
+		// Deck files can be written on their own threads, in any order.
+		ExecutorService deckExecutor = 
+			deckThreadCount > 0
+			? createDeckExecutor(deckThreadCount)
+			: null;
+		LinkedList<Future<Object>> deckWrites = 
+			new LinkedList<Future<Object>>();
+		manifest = 
+			manifestFile == null
+			? null
+			: DeckManifest.load(new File(manifestFile));
 		characterReader.open();
 		try
 		{
-			for (int rank = 1; hasMoreCharacters(rank); rank++)
+			int rank = 1;
+			while (true)
 			{
-				String character = characterReader.nextItem();
-				currentCharacter = character;
-				EntryValue[] characterEntries = null;
-				try {
-					characterEntries = dao.findAllEntryValuesByTraditionalCharacter(
-							character, 
-							1000);
-				} catch (RuntimeException e) {
-					log.warn(
-							"Error loading definition for rank " + rank + 
-							": " + character,
-							e);
-					continue;
-				}
-				if (characterEntries == null || characterEntries.length == 0)
+				while (lookups.size() <= prefetchCount && 
+						hasMoreCharacters(rank))
 				{
-					log.warn(
-							"No entries found for rank " + rank + 
-							": " + character);
-					continue;
-				}
-				String strokeOrderData =
-					findStrokeOrderData(characterEntries, rank);
-
-				EntryValue[] wordEntries;
-				try {
-					wordEntries = dao.findAllEntryValuesByTraditionalCharacter(
-							"%" + character + "%", 
-							1000);
-				} catch (RuntimeException e) {
-					log.warn(
-							"Error loading word definitions for rank " + rank + 
-							": " + character,
-							e);
-					continue;
+					List<String> characters = readCharacterBatch(rank);
+					CharacterLookup lookup = 
+						new CharacterLookup(rank, characters);
+					rank += characters.size();
+					if (executor != null)
+					{
+						lookups.add(executor.submit(lookup));
+					}else
+					{
+						FutureTask<CharacterLookup> task = 
+							new FutureTask<CharacterLookup>(lookup);
+						task.run();
+						lookups.add(task);
+					}
 				}
-				characterEntries = 
-					sampleBuilder.build(characterEntries, wordEntries);
-				wordEntries = sampleBuilder.filterWords(
-						wordEntries, 
-						characterEntries[0].getRank());
-				
-				List<EntryValue> entryList = Arrays.asList(characterEntries);
-				List<EntryValue> wordList = Arrays.asList(wordEntries);
-				
-				CharacterSummary summary = 
-					summarize(entryList, wordList, strokeOrderData);
-				summaries.add(summary);
-				int numCards = countCards(summary);
-				totalNumCards += numCards;
-				totalNumCharacters++;
-				if (deckSize > 0 && (rank % deckSize == 0))
+				if (lookups.isEmpty())
 				{
-					int numWordCards = writeDeck(summaries);
-					totalNumWords += numWordCards;
-					totalNumCards += numWordCards;
-					summaries.clear();
+					break;
+				}
+				CharacterLookup lookup = waitFor(
+						lookups.removeFirst(), 
+						"look up characters");
+				List<String> characters = lookup.characters;
+				for (int i = 0; i < characters.size(); i++) {
+					int characterRank = lookup.firstRank + i;
+					String character = characters.get(i);
+					currentCharacter = character;
+					RuntimeException error = lookup.errors.get(character);
+					if (error != null)
+					{
+						log.warn(
+								"Error loading definitions for rank " + 
+								characterRank + ": " + character,
+								error);
+						continue;
+					}
+					CharacterSummary summary = summarizeCharacter(
+							character, 
+							characterRank, 
+							lookup.characterEntries.get(character), 
+							lookup.wordEntries.get(character),
+							lookup.strokeOrderData[i]);
+					if (summary == null)
+					{
+						continue;
+					}
+					summaries.add(summary);
+					int numCards = countCards(summary);
+					totalNumCards += numCards;
+					totalNumCharacters++;
+					if (deckSize > 0 && (characterRank % deckSize == 0))
+					{
+						int numWordCards = 
+							writeDeck(summaries, deckExecutor, deckWrites);
+						totalNumWords += numWordCards;
+						totalNumCards += numWordCards;
+						summaries = new ArrayList<CharacterSummary>();
+					}
 				}
 			}
 			if (!summaries.isEmpty())
 			{
-				int numWordCards = writeDeck(summaries);
+				int numWordCards = 
+					writeDeck(summaries, deckExecutor, deckWrites);
 				totalNumWords += numWordCards;
 				totalNumCards += numWordCards;
 			}
+			while ( ! deckWrites.isEmpty())
+			{
+				waitFor(deckWrites.removeFirst(), "write deck");
+			}
+			if (manifest != null)
+			{
+				manifest.compact();
+			}
 		}finally
 		{
 			characterReader.close();
+			if (executor != null)
+			{
+				executor.shutdownNow();
+			}
+			if (deckExecutor != null)
+			{
+				deckExecutor.shutdownNow();
+			}
 		}
 		log.info(String.format(
 				"Generated %1$d cards with %2$d characters and %3$d words.",
@@ -158,6 +221,177 @@ public class DictionaryApp
 				totalNumWords));
     }
 
+	/**
+	 * @param action describes the task for error messages, like 
+	 * "write deck".
+	 */
+	private static <T> T waitFor(Future<T> future, String action) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(
+					"Interrupted while waiting to " + action + ".", 
+					e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(
+					"Failed to " + action + ".", 
+					e.getCause());
+		}
+	}
+
+	/**
+	 * Use a virtual thread for each deck if the JVM has them, otherwise a
+	 * fixed pool. Either way, generateCards() never has more than 
+	 * threadCount decks waiting to be written.
+	 */
+	private static ExecutorService createDeckExecutor(int threadCount) {
+		try {
+			Method factory = 
+				Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (NoSuchMethodException e) {
+			// Virtual threads need Java 21.
+			return Executors.newFixedThreadPool(threadCount);
+		} catch (Exception e) {
+			throw new RuntimeException("Failed to create deck executor.", e);
+		}
+	}
+
+	/**
+	 * Looks up a batch of characters' entries, the words that contain 
+	 * them, and their stroke order data. This runs ahead on a worker 
+	 * thread, so it mustn't touch anything that the main thread changes.
+	 * If the batch query fails, the characters are looked up one at a 
+	 * time, so only the characters that fail get skipped.
+	 */
+	private class CharacterLookup implements Callable<CharacterLookup> {
+		private final int firstRank;
+		private final List<String> characters;
+		private Map<String, EntryValue[]> characterEntries;
+		private Map<String, EntryValue[]> wordEntries;
+		private String[] strokeOrderData;
+		/** The error for each character that couldn't be looked up. */
+		private Map<String, RuntimeException> errors = 
+			new HashMap<String, RuntimeException>();
+		
+		public CharacterLookup(int firstRank, List<String> characters) {
+			this.firstRank = firstRank;
+			this.characters = characters;
+		}
+
+		public CharacterLookup call() {
+			try {
+				characterEntries = 
+					dao.findAllEntryValuesByTraditionalCharacters(
+						characters, 
+						1000);
+				wordEntries = 
+					dao.findAllEntryValuesContainingCharacters(
+						characters, 
+						1000);
+			} catch (RuntimeException e) {
+				log.warn(
+						"Error loading definitions for ranks " + 
+						firstRank + " to " + 
+						(firstRank + characters.size() - 1) + 
+						", so looking them up one at a time.",
+						e);
+				lookUpEachCharacter();
+			}
+			strokeOrderData = new String[characters.size()];
+			for (int i = 0; i < strokeOrderData.length; i++) {
+				EntryValue[] entries = characterEntries.get(characters.get(i));
+				if (entries != null && entries.length > 0)
+				{
+					strokeOrderData[i] = 
+						findStrokeOrderData(entries, firstRank + i);
+				}
+			}
+			return this;
+		}
+
+		private void lookUpEachCharacter() {
+			characterEntries = new HashMap<String, EntryValue[]>();
+			wordEntries = new HashMap<String, EntryValue[]>();
+			for (String character : characters) {
+				try {
+					characterEntries.put(
+							character, 
+							dao.findAllEntryValuesByTraditionalCharacter(
+									character, 
+									1000));
+					wordEntries.put(
+							character, 
+							dao.findAllEntryValuesByTraditionalCharacter(
+									"%" + character + "%", 
+									1000));
+				} catch (RuntimeException e) {
+					characterEntries.remove(character);
+					errors.put(character, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read the characters for the rest of the current deck, or a batch of
+	 * characters if there are no decks, so they can be looked up together.
+	 * @param rank the rank of the next character
+	 * @return at least one character
+	 */
+	private List<String> readCharacterBatch(int rank) {
+		List<String> characters = new ArrayList<String>();
+		do
+		{
+			characters.add(characterReader.nextItem());
+			rank++;
+		}while (hasMoreCharacters(rank) && 
+				! isBatchEnd(rank - 1, characters.size()));
+		return characters;
+	}
+
+	private boolean isBatchEnd(int lastRank, int batchSize) {
+		return 
+			deckSize > 0
+			? lastRank % deckSize == 0
+			: batchSize >= LOOKUP_BATCH_SIZE;
+	}
+
+	/**
+	 * Choose samples for a character and the words that contain it.
+	 * @return the summary, or null if the character has no entries.
+	 */
+	private CharacterSummary summarizeCharacter(
+			String character,
+			int rank,
+			EntryValue[] characterEntries,
+			EntryValue[] wordEntries,
+			String strokeOrderData) {
+		if (characterEntries == null || characterEntries.length == 0)
+		{
+			log.warn(
+					"No entries found for rank " + rank + 
+					": " + character);
+			return null;
+		}
+
+		if (wordEntries == null)
+		{
+			wordEntries = new EntryValue[0];
+		}
+		characterEntries = 
+			sampleBuilder.build(characterEntries, wordEntries);
+		wordEntries = sampleBuilder.filterWords(
+				wordEntries, 
+				characterEntries[0].getRank());
+		
+		List<EntryValue> entryList = Arrays.asList(characterEntries);
+		List<EntryValue> wordList = Arrays.asList(wordEntries);
+		
+		return summarize(entryList, wordList, strokeOrderData);
+	}
+
 	private boolean hasMoreCharacters(int rank) {
 		if (characterLimit > 0 && rank > characterLimit)
 		{
@@ -194,58 +428,189 @@ public class DictionaryApp
 	}
 
 	/**
-	 * @param summaries
+	 * Write the word cards for a deck, and then the deck file, either 
+	 * right away or on the deck executor. Word cards use up words from the
+	 * word list, so they're always chosen in deck order. That way, the 
+	 * files are the same no matter which order they're written in.
+	 * @param summaries the deck's characters, which mustn't change after 
+	 * this.
+	 * @param deckExecutor writes the deck file, or null to write it now
+	 * @param deckWrites collects the writes that are still running
 	 * @return The number of word cards written.
 	 */
-	private int writeDeck(List<CharacterSummary> summaries) {
-		int numWordCards;
+	private int writeDeck(
+			List<CharacterSummary> summaries,
+			ExecutorService deckExecutor,
+			LinkedList<Future<Object>> deckWrites) {
 		int minRank = summaries.get(0).entry.getRank();
 		int maxRank = summaries.get(summaries.size()-1).entry.getRank();
 		String deckName = buildName(deckNameTemplate, minRank, maxRank, "%1$04d");
-		OutputStreamWriter fileWriter;
-		try {
-			FileOutputStream outStream = new FileOutputStream(deckName);
-			fileWriter = new OutputStreamWriter(outStream, "UTF-8");
-		} catch (Exception e) {
-			throw new RuntimeException(e);
+		String baseCategory = buildName(categoryTemplate, minRank, maxRank, "%1$4d") + " - "; 
+		
+		// Word cards come after the character cards, so their ids do too.
+		int characterCardCount = 0;
+		for (CharacterSummary summary : summaries) {
+			characterCardCount += countCards(summary);
 		}
-		try
+		StringWriter wordCards = new StringWriter();
+		DeckWriter wordWriter = new DeckWriter();
+		wordWriter.setWriter(wordCards);
+		wordWriter.setCardNumber(characterCardCount);
+		int numWordCards = 
+			writeWordCards(summaries, wordWriter, baseCategory + "Words");
+		wordWriter.writeFooter();
+		
+		String inputHash = null;
+		if (manifest != null)
 		{
-			DeckWriter writer = new DeckWriter();
-			writer.setWriter(fileWriter);
-			writer.writeHeader();
-			String baseCategory = buildName(categoryTemplate, minRank, maxRank, "%1$4d") + " - "; 
-			String categoryEnglish = baseCategory + "English";
-			writer.writeCategory(categoryEnglish);
-			String categoryHanzi = baseCategory + "Hanzi";
-			writer.writeCategory(categoryHanzi);
-			String categoryTraditional = baseCategory + "Traditional";
-			writer.writeCategory(categoryTraditional);
-			String categoryPinyin = baseCategory + "Pinyin";
-			writer.writeCategory(categoryPinyin);
-			String categoryWords = baseCategory + "Words";
-			writer.writeCategory(categoryWords);
-			
-			writeEnglishCards(summaries, writer, categoryEnglish);
-			writeHanziCards(summaries, writer, categoryHanzi);
-			writeTraditionalCards(summaries, writer, categoryTraditional);
-			writePinyinCards(summaries, writer, categoryPinyin);
-			
-			numWordCards = writeWordCards(summaries, writer, categoryWords);
-			
-			writer.writeFooter();
-		}finally
+			inputHash = DeckManifest.hash(describeDeckInputs(
+					deckName, 
+					baseCategory, 
+					summaries, 
+					wordCards.toString()));
+			if (manifest.isCurrent(deckName, inputHash))
+			{
+				log.info("Skipped unchanged deck " + deckName + ".");
+				return numWordCards;
+			}
+		}
+		DeckFileWriter deckFileWriter = new DeckFileWriter(
+				deckName, 
+				baseCategory, 
+				summaries, 
+				characterCardCount, 
+				wordCards.toString(),
+				inputHash,
+				deckExecutor == null 
+				? strokeImageFacade 
+				: new StrokeImageFacade());
+		if (deckExecutor == null)
 		{
-			try {
-				fileWriter.close();
-			} catch (IOException e) {
-				throw new RuntimeException(e);
+			deckFileWriter.call();
+		}else
+		{
+			deckWrites.add(deckExecutor.submit(deckFileWriter));
+			while (deckWrites.size() > deckThreadCount)
+			{
+				waitFor(deckWrites.removeFirst(), "write deck");
 			}
 		}
-		
 		return numWordCards;
 	}
 
+	/**
+	 * Describe everything that goes into a deck file, so the manifest can
+	 * tell when it needs to be written again. The word cards are already
+	 * formatted, so they cover the word list and the quiz setting.
+	 */
+	private String describeDeckInputs(
+			String deckName, 
+			String baseCategory, 
+			List<CharacterSummary> summaries, 
+			String wordCards) {
+		StringBuilder inputs = new StringBuilder();
+		inputs.append(DECK_FORMAT_VERSION).append('\n');
+		inputs.append(deckName).append('\n');
+		inputs.append(baseCategory).append('\n');
+		for (CharacterSummary summary : summaries) {
+			describeEntry(inputs, summary.entry);
+			inputs.append(summary.samples).append('\n');
+			inputs.append(summary.strokeOrderData).append('\n');
+			for (EntryValue entry : summary.allEntries) {
+				describeEntry(inputs, entry);
+				if (entry.getSample() != null)
+				{
+					describeEntry(inputs, entry.getSample());
+				}
+			}
+		}
+		inputs.append(wordCards);
+		return inputs.toString();
+	}
+
+	private static void describeEntry(StringBuilder inputs, EntryValue entry) {
+		inputs.append(entry.getRank()).append('\t');
+		inputs.append(entry.getTraditionalChars()).append('\t');
+		inputs.append(entry.getSimplifiedChars()).append('\t');
+		inputs.append(entry.getPinyin()).append('\t');
+		inputs.append(entry.getDefinition()).append('\n');
+	}
+
+	/**
+	 * Writes a deck file with its character cards, stroke images, and 
+	 * the word cards that were already chosen.
+	 */
+	private class DeckFileWriter implements Callable<Object> {
+		private final String deckName;
+		private final String baseCategory;
+		private final List<CharacterSummary> summaries;
+		private final int characterCardCount;
+		private final String wordCards;
+		private final String inputHash;
+		private final StrokeImageFacade imageFacade;
+
+		public DeckFileWriter(
+				String deckName, 
+				String baseCategory,
+				List<CharacterSummary> summaries, 
+				int characterCardCount,
+				String wordCards, 
+				String inputHash,
+				StrokeImageFacade imageFacade) {
+			this.deckName = deckName;
+			this.baseCategory = baseCategory;
+			this.summaries = summaries;
+			this.characterCardCount = characterCardCount;
+			this.wordCards = wordCards;
+			this.inputHash = inputHash;
+			this.imageFacade = imageFacade;
+		}
+
+		public Object call() {
+			DeckWriter writer = new DeckWriter();
+			writer.open(deckName);
+			try
+			{
+				writer.writeHeader();
+				String categoryEnglish = baseCategory + "English";
+				writer.writeCategory(categoryEnglish);
+				String categoryHanzi = baseCategory + "Hanzi";
+				writer.writeCategory(categoryHanzi);
+				String categoryTraditional = baseCategory + "Traditional";
+				writer.writeCategory(categoryTraditional);
+				String categoryPinyin = baseCategory + "Pinyin";
+				writer.writeCategory(categoryPinyin);
+				String categoryWords = baseCategory + "Words";
+				writer.writeCategory(categoryWords);
+				
+				writeEnglishCards(summaries, writer, categoryEnglish, imageFacade);
+				writeHanziCards(summaries, writer, categoryHanzi);
+				writeTraditionalCards(summaries, writer, categoryTraditional);
+				writePinyinCards(summaries, writer, categoryPinyin);
+				if (writer.getCardNumber() != characterCardCount)
+				{
+					throw new IllegalStateException(String.format(
+							"Wrote %1$d character cards in %2$s, but " +
+							"expected %3$d.",
+							writer.getCardNumber(),
+							deckName,
+							characterCardCount));
+				}
+				
+				writer.writeFormatted(wordCards);
+			}finally
+			{
+				writer.close();
+			}
+			if (inputHash != null)
+			{
+				// Only record finished decks, so a crash can resume.
+				manifest.record(deckName, inputHash);
+			}
+			return null;
+		}
+	}
+
 	private String buildName(
 			String template, 
 			int minRank, 
@@ -276,12 +641,13 @@ public class DictionaryApp
 	private void writeEnglishCards(
 			List<CharacterSummary> summaries,
 			DeckWriter writer, 
-			String categoryName) {
+			String categoryName,
+			StrokeImageFacade imageFacade) {
 		for (CharacterSummary summary : summaries)
 		{
 			if (summary.strokeOrderData != null) {
 				try {
-					strokeImageFacade.generateImage(
+					imageFacade.generateImage(
 							summary.strokeOrderData,
 							"output/" + getFilenameRoot(summary.entry));
 				} catch (RuntimeException e) {
@@ -366,47 +732,44 @@ public class DictionaryApp
 		int wordCount = 0;
 		while (itr.hasNext() && moreWordsNeeded(wordCount))
 		{
-			String word = itr.next();
-			itr.remove();
-			EntryValue[] wordEntries = null;
+			// Only take as many words as are still needed, so a word is 
+			// only used up if it gets a card or has no entries.
+			List<String> words = new ArrayList<String>();
+			while (itr.hasNext() && 
+					moreWordsNeeded(wordCount + words.size()) &&
+					words.size() < LOOKUP_BATCH_SIZE)
+			{
+				words.add(itr.next());
+				itr.remove();
+			}
+			Map<String, EntryValue[]> allWordEntries;
+			Set<String> failedWords = new HashSet<String>();
 			try {
-				wordEntries = dao.findAllEntryValuesByTraditionalCharacter(
-						word, 
+				allWordEntries = dao.findAllEntryValuesByTraditionalCharacters(
+						words, 
 						1000);
 			} catch (RuntimeException e) {
 				log.warn(
-						"Error loading definition for word: " + word,
+						"Error loading definitions for words: " + words + 
+						", so looking them up one at a time.",
 						e);
-				continue;
+				allWordEntries = lookUpEachWord(words, failedWords);
 			}
-			if (wordEntries == null || wordEntries.length == 0)
-			{
-				log.warn(
-						"No entries found for word: " + word);
-				continue;
-			}
-			
-			EntryValue firstEntry = wordEntries[0];
-			String simplifiedChars = firstEntry.getSimplifiedChars();
-			StringBuilder answer = new StringBuilder();
-			String traditionalChars = firstEntry.getTraditionalChars();
-			if (!simplifiedChars.equals(traditionalChars)) {
-				answer.append("traditional: " + traditionalChars + "<br>");
-			}
-			for (EntryValue entry : wordEntries) {
-				if (entry != firstEntry)
+			for (String word : words) {
+				if (failedWords.contains(word))
 				{
-					answer.append("<br>");
+					continue;
 				}
-				answer.append(entry.getPinyin().replaceAll(" ", ""));
-				answer.append(" " + entry.getDefinition());
+				EntryValue[] wordEntries = allWordEntries.get(word);
+				if (wordEntries == null || wordEntries.length == 0)
+				{
+					log.warn(
+							"No entries found for word: " + word);
+					continue;
+				}
+				writeWordCard(writer, categoryName, wordEntries);
+				wordCount++;
 			}
-			writer.writeCard(
-					categoryName, 
-					simplifiedChars, 
-					answer.toString());
-			wordConnector.addWord(simplifiedChars);
-			wordCount++;
 		}
 		if (isQuizRequested)
 		{
@@ -415,6 +778,60 @@ public class DictionaryApp
 		return wordCount;
 	}
 
+	/**
+	 * Look up words one at a time, after a batch lookup failed.
+	 * @param words the words to look up
+	 * @param failedWords collects any words that still fail
+	 * @return entries for each word that didn't fail
+	 */
+	private Map<String, EntryValue[]> lookUpEachWord(
+			List<String> words,
+			Set<String> failedWords) {
+		Map<String, EntryValue[]> allWordEntries = 
+			new HashMap<String, EntryValue[]>();
+		for (String word : words) {
+			try {
+				allWordEntries.put(
+						word, 
+						dao.findAllEntryValuesByTraditionalCharacter(
+								word, 
+								1000));
+			} catch (RuntimeException e) {
+				log.warn(
+						"Error loading definition for word: " + word,
+						e);
+				failedWords.add(word);
+			}
+		}
+		return allWordEntries;
+	}
+
+	private void writeWordCard(
+			DeckWriter writer, 
+			String categoryName,
+			EntryValue[] wordEntries) {
+		EntryValue firstEntry = wordEntries[0];
+		String simplifiedChars = firstEntry.getSimplifiedChars();
+		StringBuilder answer = new StringBuilder();
+		String traditionalChars = firstEntry.getTraditionalChars();
+		if (!simplifiedChars.equals(traditionalChars)) {
+			answer.append("traditional: " + traditionalChars + "<br>");
+		}
+		for (EntryValue entry : wordEntries) {
+			if (entry != firstEntry)
+			{
+				answer.append("<br>");
+			}
+			answer.append(entry.getPinyin().replaceAll(" ", ""));
+			answer.append(" " + entry.getDefinition());
+		}
+		writer.writeCard(
+				categoryName, 
+				simplifiedChars, 
+				answer.toString());
+		wordConnector.addWord(simplifiedChars);
+	}
+
 	private void runQuiz(DeckWriter writer) {
 		BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
 		for (Puzzle puzzle : wordConnector.generatePuzzles()) {
@@ -651,6 +1068,10 @@ public class DictionaryApp
 		return deckNameTemplate;
 	}
 
+	/**
+	 * @param deckNameTemplate the deck file name, where #{minrank} and 
+	 * #{maxrank} get replaced. Names that end with ".gz" are compressed.
+	 */
 	public void setDeckNameTemplate(String deckNameTemplate) {
 		this.deckNameTemplate = deckNameTemplate;
 	}
@@ -679,6 +1100,58 @@ public class DictionaryApp
 		this.characterLimit = characterLimit;
 	}
 
+	public int getPrefetchCount() {
+		return prefetchCount;
+	}
+
+	/**
+	 * @param prefetchCount how many batches of characters to look up
+	 * ahead of the one being written. A batch is the rest of a deck, or 
+	 * 100 characters if there are no decks. Zero looks up each batch 
+	 * just before it's written. Defaults to 2.
+	 */
+	public void setPrefetchCount(int prefetchCount) {
+		this.prefetchCount = prefetchCount;
+	}
+
+	public int getPrefetchThreadCount() {
+		return prefetchThreadCount;
+	}
+
+	/**
+	 * @param prefetchThreadCount how many threads look up batches ahead.
+	 * Defaults to 2.
+	 */
+	public void setPrefetchThreadCount(int prefetchThreadCount) {
+		this.prefetchThreadCount = prefetchThreadCount;
+	}
+
+	public int getDeckThreadCount() {
+		return deckThreadCount;
+	}
+
+	/**
+	 * @param deckThreadCount how many deck files to write at the same 
+	 * time, or 0 to write each one before moving on to the next. The 
+	 * files are the same either way. Defaults to 0.
+	 */
+	public void setDeckThreadCount(int deckThreadCount) {
+		this.deckThreadCount = deckThreadCount;
+	}
+
+	public String getManifestFile() {
+		return manifestFile;
+	}
+
+	/**
+	 * @param manifestFile where to remember a hash of each deck's inputs,
+	 * so decks that haven't changed since the last run aren't written 
+	 * again. Null writes every deck. Defaults to null.
+	 */
+	public void setManifestFile(String manifestFile) {
+		this.manifestFile = manifestFile;
+	}
+
 	public int getWordsPerDeck() {
 		return wordsPerDeck;
 	}
@@ -1,8 +1,34 @@
 package com.google.code.donkirkby;
 
+import java.util.Collection;
+import java.util.Map;
+
 public interface DictionaryDao {
 
 	public abstract EntryValue[] findAllEntryValuesByTraditionalCharacter(
 			String character, int maxResults);
 
+	/**
+	 * Look up several characters or words at once.
+	 * @param characters the traditional characters or words to find
+	 * @param maxResults the most entries to return for each one
+	 * @return the entries for each character that has any. A character with
+	 * no entries has no key in the map.
+	 */
+	public abstract Map<String, EntryValue[]> 
+	findAllEntryValuesByTraditionalCharacters(
+			Collection<String> characters, int maxResults);
+
+	/**
+	 * Find all the entries that contain each of several characters, the
+	 * same as looking up "%" + character + "%" for each one.
+	 * @param characters the traditional characters to search for
+	 * @param maxResults the most entries to return for each character
+	 * @return the entries for each character that has any. An entry that
+	 * contains more than one of the characters appears under each of them.
+	 */
+	public abstract Map<String, EntryValue[]> 
+	findAllEntryValuesContainingCharacters(
+			Collection<String> characters, int maxResults);
+
 }
\ No newline at end of file
@@ -1,21 +1,26 @@
 package com.google.code.donkirkby;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 public class DictionaryDaoAggregator implements DictionaryDao {
-	List<DictionaryDao> sources;
-
-	/* (non-Javadoc)
-	 * @see com.google.code.donkirkby.DictionaryDao#findAllEntryValuesByTraditionalCharacter(java.lang.String, int)
-	 */
-	@Override
-	public EntryValue[] findAllEntryValuesByTraditionalCharacter(
-			String character, int maxResults) {
-		/* return the entries sorted by traditional characters. */
-		Comparator<EntryValue> comparator = new Comparator<EntryValue>() {
+	/* return the entries sorted by traditional characters. */
+	private static final Comparator<EntryValue> comparator = 
+		new Comparator<EntryValue>() {
 			@Override
 			public int compare(EntryValue entry1, EntryValue entry2) {
 				String traditional1 = entry1.getTraditionalChars();
@@ -31,24 +36,254 @@ public class DictionaryDaoAggregator implements DictionaryDao {
 			}
 			
 		};
-		List<EntryValue> results = new ArrayList<EntryValue>();
-		for (DictionaryDao source : sources) {
-			EntryValue[] rawResult = 
-				source.findAllEntryValuesByTraditionalCharacter(
-						character, 
-						maxResults);
-			for (EntryValue entry : rawResult) {
-				int index = Collections.binarySearch(results, entry, comparator);
-				if (index < 0)
+	private static final int DEFAULT_TIMEOUT = 60000;
+	private static ExecutorService defaultExecutor;
+
+	List<DictionaryDao> sources;
+	private ExecutorService executor;
+	private long timeout = DEFAULT_TIMEOUT;
+
+	/* (non-Javadoc)
+	 * @see com.google.code.donkirkby.DictionaryDao#findAllEntryValuesByTraditionalCharacter(java.lang.String, int)
+	 */
+	@Override
+	public EntryValue[] findAllEntryValuesByTraditionalCharacter(
+			final String character, final int maxResults) {
+		List<Callable<EntryValue[]>> tasks = 
+			new ArrayList<Callable<EntryValue[]>>();
+		for (final DictionaryDao source : sources) {
+			tasks.add(new Callable<EntryValue[]>() {
+				public EntryValue[] call() {
+					return source.findAllEntryValuesByTraditionalCharacter(
+							character, 
+							maxResults);
+				}
+			});
+		}
+		return mergeSorted(queryAll(tasks));
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.donkirkby.DictionaryDao#findAllEntryValuesByTraditionalCharacters(java.util.Collection, int)
+	 */
+	@Override
+	public Map<String, EntryValue[]> findAllEntryValuesByTraditionalCharacters(
+			final Collection<String> characters, final int maxResults) {
+		List<Callable<Map<String, EntryValue[]>>> tasks = 
+			new ArrayList<Callable<Map<String, EntryValue[]>>>();
+		for (final DictionaryDao source : sources) {
+			tasks.add(new Callable<Map<String, EntryValue[]>>() {
+				public Map<String, EntryValue[]> call() {
+					return source.findAllEntryValuesByTraditionalCharacters(
+							characters, 
+							maxResults);
+				}
+			});
+		}
+		return mergeResults(characters, queryAll(tasks));
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.donkirkby.DictionaryDao#findAllEntryValuesContainingCharacters(java.util.Collection, int)
+	 */
+	@Override
+	public Map<String, EntryValue[]> findAllEntryValuesContainingCharacters(
+			final Collection<String> characters, final int maxResults) {
+		List<Callable<Map<String, EntryValue[]>>> tasks = 
+			new ArrayList<Callable<Map<String, EntryValue[]>>>();
+		for (final DictionaryDao source : sources) {
+			tasks.add(new Callable<Map<String, EntryValue[]>>() {
+				public Map<String, EntryValue[]> call() {
+					return source.findAllEntryValuesContainingCharacters(
+							characters, 
+							maxResults);
+				}
+			});
+		}
+		return mergeResults(characters, queryAll(tasks));
+	}
+
+	/**
+	 * Query all the sources at the same time, and wait for the slowest one.
+	 * @param tasks one query for each source
+	 * @return the results in the same order as the sources
+	 * @throws RuntimeException if any source fails or takes longer than 
+	 * the timeout.
+	 */
+	private <T> List<T> queryAll(List<Callable<T>> tasks) {
+		List<T> results = new ArrayList<T>(tasks.size());
+		if (tasks.size() < 2)
+		{
+			// Nothing to overlap.
+			for (Callable<T> task : tasks) {
+				try {
+					results.add(task.call());
+				} catch (RuntimeException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new RuntimeException("Dictionary lookup failed.", e);
+				}
+			}
+			return results;
+		}
+		try
+		{
+			List<Future<T>> futures = findExecutor().invokeAll(
+					tasks, 
+					timeout, 
+					TimeUnit.MILLISECONDS);
+			for (int i = 0; i < futures.size(); i++) {
+				try
+				{
+					results.add(futures.get(i).get());
+				}catch (CancellationException e)
 				{
-					// not in the list, so insert
-					results.add(-index - 1, entry);
+					throw new RuntimeException(
+							"Dictionary source " + sources.get(i) + 
+							" took longer than " + timeout + " ms.");
 				}
 			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(
+					"Interrupted while looking up dictionary entries.", 
+					e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+			{
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(
+					"Dictionary lookup failed.", 
+					e.getCause());
+		}
+		return results;
+	}
+
+	private ExecutorService findExecutor() {
+		if (executor != null)
+		{
+			return executor;
+		}
+		synchronized (DictionaryDaoAggregator.class) {
+			if (defaultExecutor == null)
+			{
+				defaultExecutor = Executors.newCachedThreadPool(
+						new ThreadFactory() {
+							public Thread newThread(Runnable runnable) {
+								Thread thread = new Thread(
+										runnable, 
+										"dictionary-lookup");
+								// Don't keep the application running.
+								thread.setDaemon(true);
+								return thread;
+							}
+						});
+			}
+			return defaultExecutor;
+		}
+	}
+
+	/**
+	 * Merge each character's entries from all the sources, in the same 
+	 * way as findAllEntryValuesByTraditionalCharacter().
+	 */
+	private static Map<String, EntryValue[]> mergeResults(
+			Collection<String> characters,
+			List<Map<String, EntryValue[]>> rawResults) {
+		Map<String, EntryValue[]> mergedResults = 
+			new LinkedHashMap<String, EntryValue[]>();
+		List<EntryValue[]> characterResults = 
+			new ArrayList<EntryValue[]>(rawResults.size());
+		for (String character : characters) {
+			characterResults.clear();
+			for (Map<String, EntryValue[]> rawResult : rawResults) {
+				characterResults.add(rawResult.get(character));
+			}
+			EntryValue[] results = mergeSorted(characterResults);
+			if (results.length > 0)
+			{
+				mergedResults.put(character, results);
+			}
+		}
+		return mergedResults;
+	}
+
+	/**
+	 * Sort each source's entries, then merge them with a heap and skip
+	 * duplicates. When several entries are equal, the one from the 
+	 * earliest source wins, and within a source, the first one wins.
+	 * @param rawResults each source's entries, or null for none.
+	 * @return the merged entries, sorted by traditional characters and
+	 * pinyin.
+	 */
+	private static EntryValue[] mergeSorted(List<EntryValue[]> rawResults) {
+		PriorityQueue<Cursor> heap = 
+			new PriorityQueue<Cursor>(Math.max(1, rawResults.size()));
+		int totalLength = 0;
+		for (int i = 0; i < rawResults.size(); i++) {
+			EntryValue[] rawResult = rawResults.get(i);
+			if (rawResult != null && rawResult.length > 0)
+			{
+				EntryValue[] sorted = rawResult.clone();
+				// stable, so the first of any duplicates stays first.
+				Arrays.sort(sorted, comparator);
+				heap.add(new Cursor(sorted, i));
+				totalLength += sorted.length;
+			}
+		}
+		List<EntryValue> results = new ArrayList<EntryValue>(totalLength);
+		EntryValue previous = null;
+		while ( ! heap.isEmpty())
+		{
+			Cursor cursor = heap.poll();
+			EntryValue entry = cursor.getEntry();
+			if (previous == null || comparator.compare(previous, entry) != 0)
+			{
+				results.add(entry);
+				previous = entry;
+			}
+			if (cursor.next())
+			{
+				heap.add(cursor);
+			}
+		}
+		return results.toArray(new EntryValue[results.size()]);
+	}
+
+	/**
+	 * Reads through one source's sorted entries during a merge.
+	 */
+	private static class Cursor implements Comparable<Cursor> {
+		private final EntryValue[] entries;
+		private final int sourceIndex;
+		private int position;
+
+		public Cursor(EntryValue[] entries, int sourceIndex) {
+			this.entries = entries;
+			this.sourceIndex = sourceIndex;
+		}
+
+		public EntryValue getEntry() {
+			return entries[position];
+		}
+
+		/**
+		 * Move to the next entry.
+		 * @return false if there are no more entries.
+		 */
+		public boolean next() {
+			return ++position < entries.length;
+		}
+
+		public int compareTo(Cursor other) {
+			int result = comparator.compare(getEntry(), other.getEntry());
+			if (result == 0)
+			{
+				result = sourceIndex - other.sourceIndex;
+			}
+			return result;
 		}
-		
-		EntryValue[] resultArray = new EntryValue[results.size()];
-		return results.toArray(resultArray);
 	}
 
 	public List<DictionaryDao> getSources() {
@@ -59,4 +294,28 @@ public class DictionaryDaoAggregator implements DictionaryDao {
 		this.sources = sources;
 	}
 
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * @param executor runs the queries to each source. Defaults to a 
+	 * shared pool of daemon threads.
+	 */
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	public long getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * @param timeout the most milliseconds to wait for the sources to 
+	 * answer a query. Defaults to one minute.
+	 */
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
 }
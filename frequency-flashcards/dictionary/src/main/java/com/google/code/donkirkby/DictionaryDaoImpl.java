@@ -1,13 +1,27 @@
 package com.google.code.donkirkby;
 
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.support.JdbcDaoSupport;
 
 public class DictionaryDaoImpl extends JdbcDaoSupport implements DictionaryDao {
@@ -16,12 +30,238 @@ public class DictionaryDaoImpl extends JdbcDaoSupport implements DictionaryDao {
 	"that another version of the zdt isn't already running.";
     
 	private static Log log = LogFactory.getLog(DictionaryDaoImpl.class);
+	/** The most characters to look up in one query. */
+	private static final int BATCH_SIZE = 100;
+	private static final String SELECT_ENTRIES = 
+		"SELECT character_id, traditional_char, simplified_char, pinyin, " +
+		"definition FROM character ";
+	private static final String FIND_BY_TRADITIONAL = 
+		SELECT_ENTRIES + "WHERE traditional_char LIKE ?";
+	/* 
+	 * Short batches are padded with repeats of their last character, so
+	 * each kind of batch query always has the same SQL, and the pooled
+	 * data source can reuse its prepared statements.
+	 */
+	private static final String FIND_BY_TRADITIONAL_BATCH = 
+		buildBatchQuery("traditional_char IN (", "?", ", ?", ")");
+	private static final String FIND_CONTAINING_BATCH = 
+		buildBatchQuery("", "traditional_char LIKE ?", " OR traditional_char LIKE ?", "");
+	/** The most index rows to insert in one JDBC batch. */
+	private static final int INSERT_BATCH_SIZE = 1000;
+	private static final String CHAR_INDEX_TABLE = "CHAR_INDEX";
+	/** The index is built under this name, and renamed once it's complete. */
+	private static final String CHAR_INDEX_BUILD_TABLE = "CHAR_INDEX_BUILD";
+	/** Holds the entry count and highest id that the index was built from. */
+	private static final String CHAR_INDEX_INFO_TABLE = "CHAR_INDEX_INFO";
+	private static final String FIND_BY_INDEXED_CHARACTER = 
+		"SELECT c.character_id, c.traditional_char, c.simplified_char, " +
+		"c.pinyin, c.definition FROM char_index i, character c " +
+		"WHERE i.index_char = ? AND c.character_id = i.character_id " +
+		"ORDER BY i.character_id";
 
     private JdbcTemplate jdbcTemplate;
+    private boolean usingCharacterIndex = true;
+    private boolean isCharacterIndexed;
 
 	@Override
 	protected void initDao() throws Exception {
     	jdbcTemplate = new JdbcTemplate(getDataSource());
+    	if (usingCharacterIndex)
+    	{
+    		try
+    		{
+    			isCharacterIndexed = 
+    				Boolean.TRUE.equals(jdbcTemplate.execute(
+    						new ConnectionCallback() {
+    							public Object doInConnection(Connection connection)
+    							throws SQLException {
+    								return Boolean.valueOf(
+    										buildCharacterIndex(connection));
+    							}
+    						}));
+    		}catch (DataAccessException ex)
+    		{
+    			log.warn(
+    					"Failed to build the character index, so character " +
+    					"searches will scan the whole table.", 
+    					ex);
+    		}
+    	}
+	}
+	
+	/**
+	 * Create the char_index table that lists each entry under every 
+	 * character in its traditional characters, unless the database 
+	 * already has an index that matches the character table. That way, 
+	 * searching for entries that contain a character is an index seek 
+	 * instead of a LIKE '%x%' scan. The table is stored in the database, so
+	 * it only gets built once.
+	 * 
+	 * The table is built under a temporary name and renamed at the end, so
+	 * a build that dies part way is never used. The char_index_info table
+	 * records the number of entries and the highest id, and the index is 
+	 * built again if the character table no longer matches them.
+	 * @return true if the table is ready to use.
+	 */
+	private boolean buildCharacterIndex(Connection connection) 
+	throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+		Statement statement = connection.createStatement();
+		try
+		{
+			int entryCount;
+			int maxId;
+			ResultSet summary = statement.executeQuery(
+					"SELECT COUNT(*), MAX(character_id) FROM character");
+			try
+			{
+				summary.next();
+				entryCount = summary.getInt(1);
+				maxId = summary.getInt(2);
+			}finally
+			{
+				summary.close();
+			}
+			if (hasTable(metaData, CHAR_INDEX_TABLE))
+			{
+				if (isIndexCurrent(metaData, statement, entryCount, maxId))
+				{
+					return true;
+				}
+				log.info("Character index is out of date.");
+				statement.execute("DROP TABLE char_index");
+			}
+			if (hasTable(metaData, CHAR_INDEX_BUILD_TABLE))
+			{
+				statement.execute("DROP TABLE char_index_build");
+			}
+			if (hasTable(metaData, CHAR_INDEX_INFO_TABLE))
+			{
+				statement.execute("DROP TABLE char_index_info");
+			}
+			log.info("Building character index.");
+			statement.execute(
+					"CREATE TABLE char_index_build (" +
+					"index_char VARCHAR(2) NOT NULL, " +
+					"character_id INTEGER NOT NULL)");
+			PreparedStatement insert = connection.prepareStatement(
+					"INSERT INTO char_index_build (index_char, character_id) " +
+					"VALUES (?, ?)");
+			int rowCount = 0;
+			try
+			{
+				ResultSet entries = statement.executeQuery(
+						"SELECT character_id, traditional_char FROM character");
+				try
+				{
+					int pendingCount = 0;
+					Set<String> entryCharacters = new HashSet<String>();
+					while (entries.next())
+					{
+						int id = entries.getInt(1);
+						String traditional = entries.getString(2);
+						if (traditional == null)
+						{
+							continue;
+						}
+						entryCharacters.clear();
+						int offset = 0;
+						while (offset < traditional.length())
+						{
+							int end = traditional.offsetByCodePoints(offset, 1);
+							String character = traditional.substring(offset, end);
+							offset = end;
+							if (entryCharacters.add(character))
+							{
+								insert.setString(1, character);
+								insert.setInt(2, id);
+								insert.addBatch();
+								pendingCount++;
+								rowCount++;
+							}
+						}
+						if (pendingCount >= INSERT_BATCH_SIZE)
+						{
+							insert.executeBatch();
+							pendingCount = 0;
+						}
+					}
+					if (pendingCount > 0)
+					{
+						insert.executeBatch();
+					}
+				}finally
+				{
+					entries.close();
+				}
+			}finally
+			{
+				insert.close();
+			}
+			statement.execute(
+					"CREATE INDEX char_index_char " +
+					"ON char_index_build (index_char, character_id)");
+			statement.execute(
+					"CREATE TABLE char_index_info (" +
+					"entry_count INTEGER NOT NULL, " +
+					"max_id INTEGER NOT NULL)");
+			statement.execute(
+					"INSERT INTO char_index_info (entry_count, max_id) " +
+					"VALUES (" + entryCount + ", " + maxId + ")");
+			statement.execute(
+					"ALTER TABLE char_index_build RENAME TO char_index");
+			log.info("Built character index with " + rowCount + " rows.");
+		}finally
+		{
+			statement.close();
+		}
+		return true;
+	}
+
+	private static boolean hasTable(DatabaseMetaData metaData, String name) 
+	throws SQLException {
+		// An underscore in the name is a wildcard, so check each match.
+		ResultSet tables = metaData.getTables(null, null, name, null);
+		try
+		{
+			while (tables.next())
+			{
+				if (name.equals(tables.getString("TABLE_NAME")))
+				{
+					return true;
+				}
+			}
+			return false;
+		}finally
+		{
+			tables.close();
+		}
+	}
+
+	/**
+	 * Check that the character table still has the same number of entries
+	 * and the same highest id as when the index was built.
+	 */
+	private static boolean isIndexCurrent(
+			DatabaseMetaData metaData,
+			Statement statement,
+			int entryCount,
+			int maxId) throws SQLException {
+		if ( ! hasTable(metaData, CHAR_INDEX_INFO_TABLE))
+		{
+			return false;
+		}
+		ResultSet info = statement.executeQuery(
+				"SELECT entry_count, max_id FROM char_index_info");
+		try
+		{
+			return info.next() 
+				&& info.getInt(1) == entryCount 
+				&& info.getInt(2) == maxId;
+		}finally
+		{
+			info.close();
+		}
 	}
 	
     /* (non-Javadoc)
@@ -31,33 +271,44 @@ public class DictionaryDaoImpl extends JdbcDaoSupport implements DictionaryDao {
     		String character, 
     		int maxResults)
     {
-        List<EntryValue> entryValues = new ArrayList<EntryValue>();
+        if (maxResults <= 0)
+        {
+        	// Zero max rows would mean no limit.
+        	return new EntryValue[0];
+        }
+        String indexedCharacter = findIndexedCharacter(character);
+        if (indexedCharacter != null)
+        {
+        	Map<String, List<EntryValue>> groups = 
+        		new LinkedHashMap<String, List<EntryValue>>();
+        	findIndexed(
+        			Collections.singletonList(indexedCharacter), 
+        			maxResults, 
+        			groups);
+        	List<EntryValue> group = groups.get(indexedCharacter);
+        	return group == null 
+        		? new EntryValue[0] 
+        		: group.toArray(new EntryValue[0]);
+        }
+        final List<EntryValue> entryValues = new ArrayList<EntryValue>();
+        final String description = "like '" + character + "'";
         try
         {
-//        	Object[] params = new Object[] { maxResults, character, character};
-        	String query2 = "SELECT TOP " + maxResults + " character_id, traditional_char, simplified_char, pinyin, definition FROM character " +
-    		"WHERE traditional_char LIKE '" + character + "'";
-        	List<?> l2 = jdbcTemplate.queryForList(query2);
-        	for (Object result : l2)
-        	{
-        		Map<?, ?> resultMap = (Map<?, ?>) result;
-        		try
-        		{
-	        		EntryValue ev = getEntryValueFromResultsMap(resultMap);
-	        		entryValues.add(ev);
-        		}catch (Exception ex)
-        		{
-        			log.warn(
-        					"Failed to load one of the entries like '" + 
-        					character + "' and skipped it.", 
-        					ex);
-        		}
-        	}
-//        	for (int i = 0; i < l.size(); i++) {
-//        		Map resultMap = (Map) l.get(i);
-//        		EntryValue ev = getEntryValueFromResultsMap(resultMap);
-//        		entryValues.add(ev);
-//        	}
+        	jdbcTemplate.query(
+        			new LimitedStatementCreator(
+        					FIND_BY_TRADITIONAL, 
+        					new Object[] { character }, 
+        					maxResults),
+        			new RowCallbackHandler() {
+        				public void processRow(ResultSet resultSet) 
+        				throws SQLException {
+        					EntryValue ev = mapEntryValue(resultSet, description);
+        					if (ev != null)
+        					{
+        						entryValues.add(ev);
+        					}
+        				}
+        			});
         } 
         catch (DataAccessException e)
         {
@@ -67,19 +318,310 @@ public class DictionaryDaoImpl extends JdbcDaoSupport implements DictionaryDao {
         return entryValues.toArray(new EntryValue[0]);
     }
     
-	private EntryValue getEntryValueFromResultsMap(Map<?, ?> resultMap) {
-		EntryValue ev = new EntryValue();
-		ev.setId((Integer)resultMap.get("CHARACTER_ID"));
-		ev.setTraditionalChars((String)resultMap.get("TRADITIONAL_CHAR"));
-		ev.setSimplifiedChars((String)resultMap.get("SIMPLIFIED_CHAR"));
+    /* (non-Javadoc)
+	 * @see com.google.code.donkirkby.DictionaryDao#findAllEntryValuesByTraditionalCharacters(java.util.Collection, int)
+	 */
+    public Map<String, EntryValue[]> findAllEntryValuesByTraditionalCharacters(
+    		Collection<String> characters, 
+    		int maxResults)
+    {
+    	return findInBatches(characters, maxResults, false);
+    }
+
+    /* (non-Javadoc)
+	 * @see com.google.code.donkirkby.DictionaryDao#findAllEntryValuesContainingCharacters(java.util.Collection, int)
+	 */
+    public Map<String, EntryValue[]> findAllEntryValuesContainingCharacters(
+    		Collection<String> characters, 
+    		int maxResults)
+    {
+    	return findInBatches(characters, maxResults, true);
+    }
+
+    private Map<String, EntryValue[]> findInBatches(
+    		Collection<String> characters,
+    		int maxResults,
+    		boolean isContaining)
+    {
+    	Map<String, List<EntryValue>> groups = 
+    		new LinkedHashMap<String, List<EntryValue>>();
+    	List<String> indexedCharacters = new ArrayList<String>();
+    	List<String> batch = new ArrayList<String>(BATCH_SIZE);
+    	for (String character : characters) {
+    		if (isContaining && isIndexable(character))
+    		{
+    			indexedCharacters.add(character);
+    			continue;
+    		}
+			batch.add(character);
+			if (batch.size() == BATCH_SIZE)
+			{
+				findBatch(batch, maxResults, isContaining, groups);
+				batch.clear();
+			}
+		}
+    	if ( ! batch.isEmpty())
+    	{
+    		findBatch(batch, maxResults, isContaining, groups);
+    	}
+    	if ( ! indexedCharacters.isEmpty())
+    	{
+    		findIndexed(indexedCharacters, maxResults, groups);
+    	}
+    	Map<String, EntryValue[]> results = 
+    		new LinkedHashMap<String, EntryValue[]>();
+    	for (Map.Entry<String, List<EntryValue>> group : groups.entrySet()) {
+			results.put(
+					group.getKey(), 
+					group.getValue().toArray(new EntryValue[0]));
+		}
+    	return results;
+    }
+
+    /**
+     * Look up a batch of characters with a single query, either with an IN
+     * list or with one LIKE condition for each character, and add each 
+     * entry to the group of every character it matches.
+     */
+    private void findBatch(
+    		final List<String> batch,
+    		final int maxResults,
+    		final boolean isContaining,
+    		final Map<String, List<EntryValue>> groups)
+    {
+    	Object[] params = new Object[BATCH_SIZE];
+    	for (int i = 0; i < params.length; i++) {
+    		String character = batch.get(Math.min(i, batch.size() - 1));
+    		params[i] = isContaining ? "%" + character + "%" : character;
+		}
+    	final String description = "for " + batch;
+        try
+        {
+        	jdbcTemplate.query(
+        			isContaining 
+        			? FIND_CONTAINING_BATCH 
+        			: FIND_BY_TRADITIONAL_BATCH,
+        			params,
+        			new RowCallbackHandler() {
+        				public void processRow(ResultSet resultSet) 
+        				throws SQLException {
+        					EntryValue ev = mapEntryValue(resultSet, description);
+        					if (ev == null || ev.getTraditionalChars() == null)
+        					{
+        						// Can't tell which characters it matched.
+        						return;
+        					}
+        					String traditional = ev.getTraditionalChars();
+        					for (String character : batch) {
+        						boolean isMatch = 
+        							isContaining 
+        							? traditional.contains(character)
+        							: traditional.equals(character);
+        						if (isMatch)
+        						{
+        							addToGroup(groups, character, ev, maxResults);
+        						}
+        					}
+        				}
+        			});
+        } 
+        catch (DataAccessException e)
+        {
+        	throw new RuntimeException(DB_CONNECTION_ERR_STRING);
+        } 
+    }
+
+    /**
+     * Look up the entries that contain each character with the character
+     * index. One prepared statement seeks each character in turn, and 
+     * returns the entries in id order, the same order that a LIKE scan
+     * finds them.
+     */
+    private void findIndexed(
+    		final List<String> characters,
+    		final int maxResults,
+    		final Map<String, List<EntryValue>> groups)
+    {
+    	if (maxResults <= 0)
+    	{
+    		return;
+    	}
+        try
+        {
+        	jdbcTemplate.execute(new ConnectionCallback() {
+        		public Object doInConnection(Connection connection)
+        		throws SQLException {
+        			PreparedStatement statement = 
+        				connection.prepareStatement(FIND_BY_INDEXED_CHARACTER);
+        			try
+        			{
+        				statement.setMaxRows(maxResults);
+        				for (String character : characters) {
+        					statement.setString(1, character);
+        					ResultSet resultSet = statement.executeQuery();
+        					try
+        					{
+        						String description = "containing " + character;
+        						while (resultSet.next())
+        						{
+        							EntryValue ev = 
+        								mapEntryValue(resultSet, description);
+        							if (ev != null)
+        							{
+        								addToGroup(groups, character, ev, maxResults);
+        							}
+        						}
+        					}finally
+        					{
+        						resultSet.close();
+        					}
+        				}
+        			}finally
+        			{
+        				statement.close();
+        			}
+        			return null;
+        		}
+        	});
+        } 
+        catch (DataAccessException e)
+        {
+        	throw new RuntimeException(DB_CONNECTION_ERR_STRING);
+        } 
+    }
+
+    /**
+     * @return true if the character index can find the entries that 
+     * contain the character.
+     */
+    private boolean isIndexable(String character)
+    {
+    	return isCharacterIndexed && 
+    		character.length() > 0 &&
+    		character.length() == Character.charCount(character.codePointAt(0)) &&
+    		! character.equals("%") &&
+    		! character.equals("_");
+    }
+
+    /**
+     * @param pattern a LIKE pattern
+     * @return the character in a '%x%' pattern that the character index can
+     * find, or null if the pattern needs a LIKE scan.
+     */
+    private String findIndexedCharacter(String pattern)
+    {
+    	if (pattern.length() < 3 || 
+    			! pattern.startsWith("%") || 
+    			! pattern.endsWith("%"))
+    	{
+    		return null;
+    	}
+    	String character = pattern.substring(1, pattern.length() - 1);
+    	return isIndexable(character) ? character : null;
+    }
+
+    private static String buildBatchQuery(
+    		String prefix,
+    		String firstCondition,
+    		String nextCondition,
+    		String suffix)
+    {
+    	StringBuilder query = new StringBuilder(SELECT_ENTRIES);
+    	query.append("WHERE ").append(prefix).append(firstCondition);
+    	for (int i = 1; i < BATCH_SIZE; i++) {
+			query.append(nextCondition);
+		}
+    	return query.append(suffix).toString();
+    }
+
+	private static void addToGroup(
+			Map<String, List<EntryValue>> groups,
+			String character,
+			EntryValue entry,
+			int maxResults) {
+		List<EntryValue> group = groups.get(character);
+		if (group == null)
+		{
+			group = new ArrayList<EntryValue>();
+			groups.put(character, group);
+		}
+		if (group.size() < maxResults)
+		{
+			group.add(entry);
+		}
+	}
+
+	public boolean isUsingCharacterIndex() {
+		return usingCharacterIndex;
+	}
+
+	/**
+	 * Sets whether to build and use the char_index table for finding 
+	 * entries that contain a character. Defaults to true.
+	 * @param usingCharacterIndex false if the database can't be changed.
+	 */
+	public void setUsingCharacterIndex(boolean usingCharacterIndex) {
+		this.usingCharacterIndex = usingCharacterIndex;
+	}
+
+	/**
+	 * Map the current row of a result set that was selected with 
+	 * SELECT_ENTRIES.
+	 * @param resultSet positioned on the row to map
+	 * @param description describes the query for the warning message
+	 * @return the entry, or null if the row couldn't be loaded.
+	 */
+	private EntryValue mapEntryValue(ResultSet resultSet, String description) 
+	throws SQLException {
+		int id = resultSet.getInt(1);
+		String traditional = resultSet.getString(2);
+		String simplified = resultSet.getString(3);
+		String rawPinyin = resultSet.getString(4);
+		String definition = resultSet.getString(5);
+		try
+		{
+			EntryValue ev = new EntryValue();
+			ev.setId(id);
+			ev.setTraditionalChars(traditional);
+			ev.setSimplifiedChars(simplified);
+			ev.setPinyin(ParserUtils.addToneMarks(rawPinyin));
+			ev.setDefinition(ParserUtils.formatDefinition(definition));
+			return ev;
+		}catch (RuntimeException ex)
+		{
+			log.warn(
+					"Failed to load one of the entries " + 
+					description + " and skipped it.", 
+					ex);
+			return null;
+		}
+	}
+
+	/**
+	 * Prepares a query with parameters, and limits the number of rows it
+	 * returns. The limit replaces "SELECT TOP n", so the SQL doesn't change
+	 * with the limit.
+	 */
+	private static class LimitedStatementCreator 
+	implements PreparedStatementCreator {
+		private String sql;
+		private Object[] params;
+		private int maxRows;
 		
-		String rawPinyin = (String)resultMap.get("PINYIN");
-		ev.setPinyin(ParserUtils.addToneMarks(rawPinyin));
-
-		String definition = (String)resultMap.get("DEFINITION");
-		definition = definition.replaceAll("^/|/$", "");
-		definition = definition.replaceAll("/", "; ");
-		ev.setDefinition(definition);
-		return ev;
+		public LimitedStatementCreator(String sql, Object[] params, int maxRows) {
+			this.sql = sql;
+			this.params = params;
+			this.maxRows = maxRows;
+		}
+
+		public PreparedStatement createPreparedStatement(Connection connection)
+				throws SQLException {
+			PreparedStatement statement = connection.prepareStatement(sql);
+			statement.setMaxRows(maxRows);
+			for (int i = 0; i < params.length; i++) {
+				statement.setObject(i + 1, params[i]);
+			}
+			return statement;
+		}
 	}
 }
@@ -0,0 +1,166 @@
+package com.google.code.donkirkby;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds dictionary entries in columns: an int array for each field, where
+ * the text fields are offsets into a pool of distinct strings. Many
+ * entries share the same pinyin, definitions, or characters, so each
+ * string is only stored once. The EntryValue objects from createEntry()
+ * are views that read their fields from the store. The getters don't
+ * check their index, so it has to be less than size().
+ *
+ * Adding entries isn't thread-safe, but once the store is safely
+ * published, any number of threads can read it and create views.
+ */
+public class EntryStore {
+	private static final int INITIAL_CAPACITY = 1024;
+	/** Pool offset for a null string. */
+	private static final int NULL_OFFSET = -1;
+
+	/** Pool offset of each string, or null after trimToSize(). */
+	private Map<String, Integer> poolOffsets = new HashMap<String, Integer>();
+	private String[] pool = new String[INITIAL_CAPACITY];
+	private int poolSize;
+	private int[] ids = new int[INITIAL_CAPACITY];
+	private int[] traditionals = new int[INITIAL_CAPACITY];
+	private int[] simplifieds = new int[INITIAL_CAPACITY];
+	private int[] pinyins = new int[INITIAL_CAPACITY];
+	private int[] definitions = new int[INITIAL_CAPACITY];
+	private int size;
+
+	/**
+	 * Add an entry to the end of the store.
+	 * @return the new entry's index in the store.
+	 */
+	public int add(
+			int id,
+			String traditional,
+			String simplified,
+			String pinyin,
+			String definition) {
+		if (size == ids.length)
+		{
+			int capacity = Math.max(size * 2, INITIAL_CAPACITY);
+			ids = resize(ids, capacity);
+			traditionals = resize(traditionals, capacity);
+			simplifieds = resize(simplifieds, capacity);
+			pinyins = resize(pinyins, capacity);
+			definitions = resize(definitions, capacity);
+		}
+		ids[size] = id;
+		traditionals[size] = intern(traditional);
+		simplifieds[size] = intern(simplified);
+		pinyins[size] = intern(pinyin);
+		definitions[size] = intern(definition);
+		return size++;
+	}
+
+	private int intern(String text) {
+		if (text == null)
+		{
+			return NULL_OFFSET;
+		}
+		if (poolOffsets == null)
+		{
+			poolOffsets = new HashMap<String, Integer>(poolSize * 4 / 3 + 1);
+			for (int offset = 0; offset < poolSize; offset++) {
+				poolOffsets.put(pool[offset], offset);
+			}
+		}
+		Integer offset = poolOffsets.get(text);
+		if (offset != null)
+		{
+			return offset;
+		}
+		if (poolSize == pool.length)
+		{
+			String[] newPool =
+				new String[Math.max(poolSize * 2, INITIAL_CAPACITY)];
+			System.arraycopy(pool, 0, newPool, 0, poolSize);
+			pool = newPool;
+		}
+		pool[poolSize] = text;
+		poolOffsets.put(text, poolSize);
+		return poolSize++;
+	}
+
+	private static int[] resize(int[] column, int capacity) {
+		int[] newColumn = new int[capacity];
+		System.arraycopy(column, 0, newColumn, 0, Math.min(column.length, capacity));
+		return newColumn;
+	}
+
+	/**
+	 * Shrink the columns and the pool to fit, and drop the map that finds
+	 * duplicate strings. Call this when all the entries are added.
+	 */
+	public void trimToSize() {
+		ids = resize(ids, size);
+		traditionals = resize(traditionals, size);
+		simplifieds = resize(simplifieds, size);
+		pinyins = resize(pinyins, size);
+		definitions = resize(definitions, size);
+		String[] newPool = new String[poolSize];
+		System.arraycopy(pool, 0, newPool, 0, poolSize);
+		pool = newPool;
+		poolOffsets = null;
+	}
+
+	/**
+	 * Create a view of an entry. Each call returns a new object, so
+	 * callers can set its rank and sample without affecting anyone else.
+	 */
+	public EntryValue createEntry(int index) {
+		checkIndex(index);
+		return new EntryValue(this, index);
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size)
+		{
+			throw new IndexOutOfBoundsException(
+					"Entry index " + index + " is out of range for " + size +
+					" entries.");
+		}
+	}
+
+	/**
+	 * @return the number of entries.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of distinct strings in all the entries.
+	 */
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	public int getId(int index) {
+		return ids[index];
+	}
+
+	public String getTraditionalChars(int index) {
+		return lookUp(traditionals[index]);
+	}
+
+	public String getSimplifiedChars(int index) {
+		return lookUp(simplifieds[index]);
+	}
+
+	public String getPinyin(int index) {
+		return lookUp(pinyins[index]);
+	}
+
+	public String getDefinition(int index) {
+		return lookUp(definitions[index]);
+	}
+
+	private String lookUp(int offset) {
+		return offset == NULL_OFFSET ? null : pool[offset];
+	}
+}
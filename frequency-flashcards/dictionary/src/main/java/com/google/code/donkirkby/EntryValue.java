@@ -13,17 +13,60 @@ package com.google.code.donkirkby;
 
 final public class EntryValue implements Comparable<EntryValue> {
 	
-    private int id = -1;
-	private String traditionalChars;
-	private String simplifiedChars;
-    private String pinyin;
-	private String definition;
+	/** 
+	 * Holds the id and text for a view of a stored entry, or null when 
+	 * they're in fields.
+	 */
+	private EntryStore store;
+	private int storeIndex;
+	/** The id and text, or null for a view that hasn't been changed. */
+	private Fields fields;
 	private int rank;
 	private EntryValue sample;
 	
+	/**
+	 * The id and text of an entry that isn't a view. Views only allocate
+	 * them when one is set, so a view stays smaller than a plain entry.
+	 */
+	private static class Fields {
+		private int id = -1;
+		private String traditionalChars;
+		private String simplifiedChars;
+		private String pinyin;
+		private String definition;
+	}
+	
+	public EntryValue() {
+		fields = new Fields();
+	}
+	
+	/**
+	 * Create a view of an entry in a store. The id and text come from the
+	 * store until one of them is set, and then the view copies them.
+	 */
+	EntryValue(EntryStore store, int storeIndex) {
+		this.store = store;
+		this.storeIndex = storeIndex;
+	}
+	
+	/**
+	 * Copy the id and text from the store before changing one of them.
+	 */
+	private void detach() {
+		if (fields == null) {
+			fields = new Fields();
+			fields.id = store.getId(storeIndex);
+			fields.traditionalChars = store.getTraditionalChars(storeIndex);
+			fields.simplifiedChars = store.getSimplifiedChars(storeIndex);
+			fields.pinyin = store.getPinyin(storeIndex);
+			fields.definition = store.getDefinition(storeIndex);
+			store = null;
+		}
+	}
+	
     public int getId()
     {
-        return this.id;
+        return fields != null ? fields.id : store.getId(storeIndex);
     }
     
     /**
@@ -31,57 +74,68 @@ final public class EntryValue implements Comparable<EntryValue> {
      * @return
      */
     public EntryValue copy() {
+    	if (fields == null) {
+    		return new EntryValue(store, storeIndex);
+    	}
     	EntryValue ev = new EntryValue();
-    	ev.setId(this.id);
-    	ev.setSimplifiedChars(this.simplifiedChars);
-    	ev.setTraditionalChars(this.traditionalChars);
-    	ev.setPinyin(this.pinyin);
-    	ev.setDefinition(this.definition);
+    	ev.setId(fields.id);
+    	ev.setSimplifiedChars(fields.simplifiedChars);
+    	ev.setTraditionalChars(fields.traditionalChars);
+    	ev.setPinyin(fields.pinyin);
+    	ev.setDefinition(fields.definition);
     	return ev;
     }
 	/**
 	 * @return Returns the traditional characters.
 	 */
 	public String getTraditionalChars() {
-		return traditionalChars;
+		return fields != null 
+			? fields.traditionalChars 
+			: store.getTraditionalChars(storeIndex);
 	}
     
 	/**
 	 * @param characters The traditional characters to set.
 	 */
 	public void setTraditionalChars(String characters) {
-		this.traditionalChars = characters;
+		detach();
+		fields.traditionalChars = characters;
 	}
     
     /**
      * @return Returns the traditional characters.
      */
     public String getSimplifiedChars() {
-        return simplifiedChars;
+        return fields != null 
+        	? fields.simplifiedChars 
+        	: store.getSimplifiedChars(storeIndex);
     }
     
     /**
      * @param characters The traditional characters to set.
      */
     public void setSimplifiedChars(String characters) {
-        this.simplifiedChars = characters;
+    	detach();
+        fields.simplifiedChars = characters;
     }
     
     public void setId(int id)
     {
-    	this.id = id;
+    	detach();
+    	fields.id = id;
     }
 	/**
 	 * @return Returns the pinyin.
 	 */
 	public String getPinyin() {
-		return pinyin;
+		return fields != null ? fields.pinyin : store.getPinyin(storeIndex);
 	}
 	/**
 	 * @param pinyin The pinyin to set.
 	 */
 	public void setPinyin(String pinyin) {
-		this.pinyin = pinyin;
+		detach();
+		fields.pinyin = pinyin;
 	}
 	
     public boolean equals(Object o)
@@ -91,27 +145,38 @@ final public class EntryValue implements Comparable<EntryValue> {
         if (!(o instanceof EntryValue))
             return false;
         EntryValue ev = (EntryValue)o;
-        return ( (ev.id == this.id) && 
-                (simplifiedChars == null ? ev.simplifiedChars == null : simplifiedChars.equals(ev.simplifiedChars)) &&
-                (traditionalChars == null ? ev.traditionalChars == null : traditionalChars.equals(ev.traditionalChars)) &&
-                (pinyin == null ? ev.pinyin == null : pinyin.equals(ev.pinyin)) &&
-                (definition == null ? ev.definition == null : definition.equals(ev.definition))
+        if (fields == null && ev.fields == null 
+        		&& store == ev.store && storeIndex == ev.storeIndex)
+            return true;
+        String simplifiedChars = getSimplifiedChars();
+        String traditionalChars = getTraditionalChars();
+        String pinyin = getPinyin();
+        String definition = getDefinition();
+        return ( (ev.getId() == getId()) && 
+                (simplifiedChars == null ? ev.getSimplifiedChars() == null : simplifiedChars.equals(ev.getSimplifiedChars())) &&
+                (traditionalChars == null ? ev.getTraditionalChars() == null : traditionalChars.equals(ev.getTraditionalChars())) &&
+                (pinyin == null ? ev.getPinyin() == null : pinyin.equals(ev.getPinyin())) &&
+                (definition == null ? ev.getDefinition() == null : definition.equals(ev.getDefinition()))
                 );
         
     }
     
     public boolean valueEquals(EntryValue ev)
     {
-    	return (simplifiedChars.equals(ev.getSimplifiedChars()) &&
-                traditionalChars.equals(ev.getTraditionalChars()) &&
-                pinyin.equals(ev.getPinyin()) &&
-                definition.equals(ev.getDefinition()));
+    	return (getSimplifiedChars().equals(ev.getSimplifiedChars()) &&
+                getTraditionalChars().equals(ev.getTraditionalChars()) &&
+                getPinyin().equals(ev.getPinyin()) &&
+                getDefinition().equals(ev.getDefinition()));
     }
     
     public int hashCode() 
     {
+        String simplifiedChars = getSimplifiedChars();
+        String traditionalChars = getTraditionalChars();
+        String pinyin = getPinyin();
+        String definition = getDefinition();
         int result = 17;
-        result = 37 * result + this.id;
+        result = 37 * result + getId();
         result = 37 * result + (simplifiedChars == null ? 0 : simplifiedChars.hashCode());
         result = 37 * result + (traditionalChars == null ? 0 : traditionalChars.hashCode());
         result = 37 * result + (pinyin == null ? 0 : pinyin.hashCode());
@@ -121,24 +186,28 @@ final public class EntryValue implements Comparable<EntryValue> {
     
     public String toString()
     {
-        return id + " : " + traditionalChars + " " + simplifiedChars + 
-        	"[ " + pinyin + " ] " + definition;
+        return getId() + " : " + getTraditionalChars() + " " + 
+        	getSimplifiedChars() + "[ " + getPinyin() + " ] " + getDefinition();
     }
 
 	public int compareTo(EntryValue anotherEntryValue) {
 		String anotherPinyin = anotherEntryValue.getPinyin();
 		String anotherDefinition = anotherEntryValue.getDefinition();
+		String pinyin = getPinyin();
 		if (pinyin.compareTo(anotherPinyin) == 0)
-			return definition.compareTo(anotherDefinition);
-		return this.pinyin.compareTo(anotherPinyin);
+			return getDefinition().compareTo(anotherDefinition);
+		return pinyin.compareTo(anotherPinyin);
 	}
 
 	public String getDefinition() {
-		return definition;
+		return fields != null 
+			? fields.definition 
+			: store.getDefinition(storeIndex);
 	}
 
 	public void setDefinition(String definition) {
-		this.definition = definition;
+		detach();
+		fields.definition = definition;
 	}
 
 	public int getRank() {
@@ -0,0 +1,427 @@
+package com.google.code.donkirkby;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+/**
+ * Loads a whole dictionary into memory the first time it's queried, and
+ * then answers queries without JDBC. The entries come from the character
+ * table of a data source, or from a CEDICT text file, and are stored in
+ * an EntryStore in id order. A hash index maps each traditional word to
+ * its entries, and a posting list for each character holds all the
+ * entries that contain it.
+ *
+ * Like DictionaryDaoImpl, findAllEntryValuesByTraditionalCharacter()
+ * treats "%x%" as a search for entries that contain x, and anything else
+ * as an exact match.
+ */
+public class InMemoryDictionaryDao implements DictionaryDao {
+	private static Log log = LogFactory.getLog(InMemoryDictionaryDao.class);
+	private static final String SELECT_ALL_ENTRIES =
+		"SELECT character_id, traditional_char, simplified_char, pinyin, " +
+		"definition FROM character ORDER BY character_id";
+	private static final String WILDCARD = "%";
+
+	private DataSource dataSource;
+	private Resource resource;
+	private final AtomicReference<Entries> entries =
+		new AtomicReference<Entries>();
+
+	/**
+	 * Load the entries, unless they're already loaded.
+	 */
+	public void load() {
+		if (entries.get() != null)
+		{
+			// already loaded.
+			return;
+		}
+		synchronized (entries) {
+			if (entries.get() == null)
+			{
+				EntriesBuilder builder = new EntriesBuilder();
+				String description;
+				if (dataSource != null)
+				{
+					loadDataSource(builder);
+					description = "data source";
+				}else if (resource != null)
+				{
+					loadResource(builder);
+					description = resource.getDescription();
+				}else
+				{
+					throw new IllegalStateException(
+							"Either dataSource or resource must be set.");
+				}
+				Entries newEntries = builder.build();
+				entries.set(newEntries);
+				log.info(String.format(
+						"Loaded %1$d entries with %2$d distinct strings from %3$s.",
+						newEntries.getCount(),
+						newEntries.getStringCount(),
+						description));
+			}
+		}
+	}
+
+	private Entries getEntries() {
+		Entries currentEntries = entries.get();
+		if (currentEntries == null)
+		{
+			load();
+			currentEntries = entries.get();
+		}
+		return currentEntries;
+	}
+
+	private void loadDataSource(final EntriesBuilder builder) {
+		try
+		{
+			new JdbcTemplate(dataSource).query(
+					SELECT_ALL_ENTRIES,
+					new RowCallbackHandler() {
+						public void processRow(ResultSet resultSet)
+						throws SQLException {
+							builder.add(
+									resultSet.getInt(1),
+									resultSet.getString(2),
+									resultSet.getString(3),
+									resultSet.getString(4),
+									resultSet.getString(5));
+						}
+					});
+		}catch (DataAccessException e)
+		{
+			throw new RuntimeException(
+					"Failed to load dictionary entries from data source.",
+					e);
+		}
+	}
+
+	/**
+	 * Read a CEDICT file. Each line looks like this, and lines that start
+	 * with # are comments:
+	 * Traditional Simplified [pin1 yin1] /meaning 1/meaning 2/
+	 */
+	private void loadResource(EntriesBuilder builder) {
+		try
+		{
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					resource.getInputStream(),
+					"UTF-8"));
+			try
+			{
+				int lineNumber = 0;
+				String line;
+				while ((line = reader.readLine()) != null)
+				{
+					lineNumber++;
+					if (line.length() == 0 || line.startsWith("#"))
+					{
+						continue;
+					}
+					int traditionalEnd = line.indexOf(' ');
+					int simplifiedEnd = line.indexOf(' ', traditionalEnd + 1);
+					int pinyinStart = line.indexOf('[', simplifiedEnd);
+					int pinyinEnd = line.indexOf(']', pinyinStart);
+					if (traditionalEnd < 0 ||
+							simplifiedEnd < 0 ||
+							pinyinStart < 0 ||
+							pinyinEnd < 0)
+					{
+						log.warn(
+								"Skipped badly formatted line " + lineNumber +
+								" of " + resource.getDescription() + ".");
+						continue;
+					}
+					builder.add(
+							lineNumber,
+							line.substring(0, traditionalEnd),
+							line.substring(traditionalEnd + 1, simplifiedEnd),
+							line.substring(pinyinStart + 1, pinyinEnd),
+							line.substring(pinyinEnd + 1).trim());
+				}
+			}finally
+			{
+				reader.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(
+					"Failed to load dictionary entries from " +
+					resource.getDescription() + ".",
+					e);
+		}
+	}
+
+	public EntryValue[] findAllEntryValuesByTraditionalCharacter(
+			String character, int maxResults) {
+		Entries currentEntries = getEntries();
+		List<EntryValue> results = new ArrayList<EntryValue>();
+		if (character.length() > 2 * WILDCARD.length() &&
+				character.startsWith(WILDCARD) &&
+				character.endsWith(WILDCARD))
+		{
+			currentEntries.findContaining(
+					character.substring(1, character.length() - 1),
+					maxResults,
+					results);
+		}else
+		{
+			currentEntries.findExact(character, maxResults, results);
+		}
+		return results.toArray(new EntryValue[0]);
+	}
+
+	public Map<String, EntryValue[]> findAllEntryValuesByTraditionalCharacters(
+			Collection<String> characters, int maxResults) {
+		Entries currentEntries = getEntries();
+		Map<String, EntryValue[]> results =
+			new LinkedHashMap<String, EntryValue[]>();
+		List<EntryValue> group = new ArrayList<EntryValue>();
+		for (String character : characters) {
+			group.clear();
+			currentEntries.findExact(character, maxResults, group);
+			if ( ! group.isEmpty())
+			{
+				results.put(character, group.toArray(new EntryValue[0]));
+			}
+		}
+		return results;
+	}
+
+	public Map<String, EntryValue[]> findAllEntryValuesContainingCharacters(
+			Collection<String> characters, int maxResults) {
+		Entries currentEntries = getEntries();
+		Map<String, EntryValue[]> results =
+			new LinkedHashMap<String, EntryValue[]>();
+		List<EntryValue> group = new ArrayList<EntryValue>();
+		for (String character : characters) {
+			group.clear();
+			currentEntries.findContaining(character, maxResults, group);
+			if ( ! group.isEmpty())
+			{
+				results.put(character, group.toArray(new EntryValue[0]));
+			}
+		}
+		return results;
+	}
+
+	public DataSource getDataSource() {
+		return dataSource;
+	}
+
+	/**
+	 * Load the entries from this data source's character table.
+	 */
+	public void setDataSource(DataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	public Resource getResource() {
+		return resource;
+	}
+
+	/**
+	 * Load the entries from this CEDICT text file, if there's no data
+	 * source.
+	 */
+	public void setResource(Resource resource) {
+		this.resource = resource;
+	}
+
+	/**
+	 * Collects entries in the order they're loaded, formats their pinyin
+	 * and definitions, and then builds the indexes.
+	 */
+	private static class EntriesBuilder {
+		private final EntryStore store = new EntryStore();
+
+		public void add(
+				int id,
+				String traditional,
+				String simplified,
+				String rawPinyin,
+				String rawDefinition) {
+			if (traditional == null)
+			{
+				return;
+			}
+			String pinyin;
+			String definition;
+			try
+			{
+				pinyin = ParserUtils.addToneMarks(rawPinyin);
+				definition = ParserUtils.formatDefinition(rawDefinition);
+			}catch (RuntimeException ex)
+			{
+				log.warn(
+						"Failed to load entry " + id + ", '" + traditional +
+						"', and skipped it.",
+						ex);
+				return;
+			}
+			store.add(id, traditional, simplified, pinyin, definition);
+		}
+
+		public Entries build() {
+			store.trimToSize();
+			int count = store.size();
+			Map<String, List<Integer>> exactLists =
+				new HashMap<String, List<Integer>>();
+			Map<String, List<Integer>> characterLists =
+				new HashMap<String, List<Integer>>();
+			for (int i = 0; i < count; i++) {
+				String traditional = store.getTraditionalChars(i);
+				addPosting(exactLists, traditional, i);
+				int offset = 0;
+				while (offset < traditional.length())
+				{
+					int end = traditional.offsetByCodePoints(offset, 1);
+					addPosting(
+							characterLists,
+							traditional.substring(offset, end),
+							i);
+					offset = end;
+				}
+			}
+			return new Entries(
+					store,
+					toArrays(exactLists),
+					toArrays(characterLists));
+		}
+
+		/** Add an entry to a posting list, unless it's already the last one. */
+		private static void addPosting(
+				Map<String, List<Integer>> postingLists,
+				String key,
+				int entryIndex) {
+			List<Integer> postings = postingLists.get(key);
+			if (postings == null)
+			{
+				postings = new ArrayList<Integer>();
+				postingLists.put(key, postings);
+			}
+			int size = postings.size();
+			if (size == 0 || postings.get(size - 1) != entryIndex)
+			{
+				postings.add(entryIndex);
+			}
+		}
+
+		private static Map<String, int[]> toArrays(
+				Map<String, List<Integer>> postingLists) {
+			Map<String, int[]> arrays =
+				new HashMap<String, int[]>(postingLists.size() * 4 / 3 + 1);
+			for (Map.Entry<String, List<Integer>> postingList :
+				postingLists.entrySet()) {
+				List<Integer> postings = postingList.getValue();
+				int[] array = new int[postings.size()];
+				for (int i = 0; i < array.length; i++) {
+					array[i] = postings.get(i);
+				}
+				arrays.put(postingList.getKey(), array);
+			}
+			return arrays;
+		}
+	}
+
+	/**
+	 * The loaded entries, which never change. Each query gets new
+	 * EntryValue views, because callers set their ranks and samples.
+	 */
+	private static final class Entries {
+		private static final int[] NO_POSTINGS = new int[0];
+
+		private final EntryStore store;
+		/** Entry indexes for each traditional word, in id order. */
+		private final Map<String, int[]> exactIndex;
+		/** Entry indexes that contain each character, in id order. */
+		private final Map<String, int[]> characterIndex;
+
+		public Entries(
+				EntryStore store,
+				Map<String, int[]> exactIndex,
+				Map<String, int[]> characterIndex) {
+			this.store = store;
+			this.exactIndex = exactIndex;
+			this.characterIndex = characterIndex;
+		}
+
+		public int getCount() {
+			return store.size();
+		}
+
+		public int getStringCount() {
+			return store.getPoolSize();
+		}
+
+		public void findExact(
+				String traditional,
+				int maxResults,
+				List<EntryValue> results) {
+			int[] postings = exactIndex.get(traditional);
+			if (postings == null)
+			{
+				return;
+			}
+			for (int i = 0; i < postings.length && i < maxResults; i++) {
+				results.add(createEntry(postings[i]));
+			}
+		}
+
+		/**
+		 * Find entries that contain some text. The posting list for the
+		 * text's first character holds all the candidates.
+		 */
+		public void findContaining(
+				String text,
+				int maxResults,
+				List<EntryValue> results) {
+			if (text.length() == 0)
+			{
+				return;
+			}
+			int firstEnd = text.offsetByCodePoints(0, 1);
+			int[] postings = characterIndex.get(text.substring(0, firstEnd));
+			if (postings == null)
+			{
+				postings = NO_POSTINGS;
+			}
+			boolean isSingleCharacter = firstEnd == text.length();
+			int resultCount = 0;
+			for (int i = 0; i < postings.length && resultCount < maxResults; i++) {
+				int entryIndex = postings[i];
+				if (isSingleCharacter ||
+						store.getTraditionalChars(entryIndex).contains(text))
+				{
+					results.add(createEntry(entryIndex));
+					resultCount++;
+				}
+			}
+		}
+
+		private EntryValue createEntry(int entryIndex) {
+			return store.createEntry(entryIndex);
+		}
+	}
+}
@@ -15,6 +15,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -22,9 +24,29 @@ public class ParserUtils {
     private static final char NEUTRAL_TONE = '5';
 	public static final String VALID_SPECIAL_CHARS = "=+. ;?,!-&。；？，！－＋＝";
     public static final String PINYIN_REGEX = "[aeiou](\\w)*:?\\d";
+    /**
+     * The characters that splitPinyin() keeps. As a regular expression
+     * character class, VALID_SPECIAL_CHARS reads "!-&" as a range, so
+     * this has all the characters from '!' to '&', but not '-'.
+     */
+    private static final String SPECIAL_CHARS = "=+. ;?,!\"#$%&。；？，！－＋＝";
     private static Map<String, String> mMap1 = new HashMap<String, String>();
     private static MasterPinyinData mPinyinData = new MasterPinyinData("pinyin_table.txt");
+    private static PinyinTrie mPinyinTrie = 
+    	new PinyinTrie(mPinyinData.getMasterPinyinList());
     private static Map<String, String> mMap2 = new HashMap<String, String>();
+    private static final Pattern mPinyinPattern = Pattern.compile(PINYIN_REGEX);
+    private static final Pattern mSubstitutionPattern = Pattern.compile("//.:?.//");
+    /** 
+     * Tone marks for every syllable and tone in the pinyin table, like 
+     * "zhong1" and "Zhong1".
+     */
+    private static final Map<String, String> mToneMarkTable = 
+    	new HashMap<String, String>();
+    private static final int MAX_CACHED_TONE_MARKS = 10000;
+    /** Whole pinyin strings that addToneMarks() has already converted. */
+    private static final ConcurrentMap<String, String> mToneMarkCache = 
+    	new ConcurrentHashMap<String, String>();
     static {
     	mMap1.put("iang1", "i//aq//ng");
         mMap1.put("iang2", "i//aw//ng");
@@ -201,6 +223,27 @@ public class ParserUtils {
         mMap2.put("//u:e//", "\u01DA");
         mMap2.put("//u:r//", "\u01DC");
         mMap2.put("//un//", "u");
+        
+        buildToneMarkTable();
+    }
+    
+    private static void buildToneMarkTable() {
+        for (String syllable : mPinyinData.getMasterPinyinList()) {
+            String capitalized = 
+            	Character.toUpperCase(syllable.charAt(0)) + syllable.substring(1);
+            for (char tone = '1'; tone <= NEUTRAL_TONE; tone++) {
+                addToToneMarkTable(syllable + tone);
+                addToToneMarkTable(capitalized + tone);
+            }
+        }
+    }
+    
+    private static void addToToneMarkTable(String pinyin) {
+        try {
+            mToneMarkTable.put(pinyin, addToneMarksSinglePinyin(pinyin));
+        } catch (IllegalArgumentException ex) {
+            // Leave it out, so converting it still reports the error.
+        }
     }
 
     /**
@@ -209,6 +252,10 @@ public class ParserUtils {
      * @return the pinyin characters with tone marks.
      */
     public static String addToneMarks(String pinyin) {
+        String cachedResult = mToneMarkCache.get(pinyin);
+        if (cachedResult != null) {
+            return cachedResult;
+        }
         // exact match
         String[] pinyinList = ParserUtils.splitPinyin(pinyin, true);
         StringBuilder sb = new StringBuilder();
@@ -216,115 +263,165 @@ public class ParserUtils {
         	if (sb.length() > 0 && sb.charAt(sb.length()-1) != ' ') {
 				sb.append(' ');
 			}
-            sb.append(ParserUtils.addToneMarksSinglePinyin(pinyinList[i].trim()));
+            String singlePinyin = pinyinList[i].trim();
+            String toneMarked = mToneMarkTable.get(singlePinyin);
+            if (toneMarked == null) {
+                // Not in the table, like special characters.
+                toneMarked = ParserUtils.addToneMarksSinglePinyin(singlePinyin);
+            }
+            sb.append(toneMarked);
+        }
+        String result = sb.toString();
+        if (mToneMarkCache.size() >= MAX_CACHED_TONE_MARKS) {
+            // Start over instead of tracking which entries are oldest.
+            mToneMarkCache.clear();
         }
-        return sb.toString();
+        mToneMarkCache.put(pinyin, result);
+        return result;
+    }
+    
+    /**
+     * Convert a raw dictionary definition like "/one/two/" into "one; two".
+     * @param definition the definition with slashes between its meanings.
+     * @return the definition with semicolons between its meanings.
+     */
+    public static String formatDefinition(String definition) {
+        definition = definition.replaceAll("^/|/$", "");
+        return definition.replaceAll("/", "; ");
     }
     
     /**
-     * Takes a string of pinyin and splits it into separate words
+     * Takes a string of pinyin and splits it into separate words.
+     * Scans from left to right, taking the longest pinyin syllable that
+     * starts at each position, and keeps runs of special characters as
+     * separate words. Any other characters are dropped.
      * @param stringOfPinyin String of pinyin to split.
      * @param addNeutralTone if true, appends '5' for any neutral tones
      * @return a String[] of individual pinyin words.
-     * @throws IllegalArgumentException if no pinyin to split.
+     * @throws IllegalArgumentException if there are special characters,
+     * but no pinyin.
      */
     public static String[] splitPinyin(String stringOfPinyin, boolean addNeutralTone)
     {
-    	try
+    	List<String> pinyinList = new ArrayList<String>();
+    	List<String> specialsList = null;
+    	int length = stringOfPinyin.length();
+    	int start = 0;
+    	while (start < length)
     	{
-	    	String[] masterPinyinList = mPinyinData.getMasterPinyinList();
-	    	// Create a temp array to hold the pinyin parts as we
-	    	// parse them.  Use the array index to keep them in the
-	    	// correct order.
-	    	String[] tempList = new String[stringOfPinyin.length()];
-	    	List<String> tempList2 = new ArrayList<String>();
-	    	
-	    	// Create a copy of the original string of pinyin so
-	    	// we can use it to find the index of matches since we're
-	    	// mutating the original string.
-	    	String strCopy = new String(stringOfPinyin);
-	    	
-	    	// Create a separate copy for matching specials
-	    	String strCopy2 = new String(stringOfPinyin);
-	    	
-	    	// Loop through the master pinyin list and see if any of
-	    	// the pinyin on the list matches something in our string of pinyin
-	    	for (String pinyin : masterPinyinList)
-			{
-	    		// Regex match pinyin with optional tone.  Capture
-	    		// two groups, the pinyin+tone and tone
-	    		Pattern pat = Pattern.compile("("+pinyin+"([1-4_]?))", Pattern.CASE_INSENSITIVE);
-	    		Matcher m = pat.matcher(stringOfPinyin);
-	    		// A particular pinyin can match multiple times in the string.
-	    		while (m.find())
-				{
-	    			String matchedPinyin = m.group(1);
-					String tone = m.group(2);
-					// Once we have a match, remove it from the original string.
-					stringOfPinyin = stringOfPinyin.replace(matchedPinyin, "");
-					int matchIndex = strCopy.indexOf(matchedPinyin);
-					// If we didn't capture the tone, then we assume its neutral.
-					if (tone.equals("") && addNeutralTone)
-						matchedPinyin = matchedPinyin+NEUTRAL_TONE;
-					// Masks off the matched pinyin from the copy.  So we
-					// don't get thrown off by duplicates.
-					strCopy = strCopy.replaceFirst(matchedPinyin, 
-							getMask(matchedPinyin.length()));
-	
-					tempList[matchIndex] = matchedPinyin;
-				}
-			}
-	    	
-	    	// Strip out all the nulls from tempList so we have the pinyin in order
-	    	for (String s : tempList)
-	    	{
-	    		if (s != null)
-	    			tempList2.add(s);
-	    	}
-	    	
-	    	// Now look for special characters in the original pinyin string so we
-	    	// can add them back in as well.
-	    	Pattern pat = Pattern.compile("(["+VALID_SPECIAL_CHARS+"]+)");
-	    	Matcher m = pat.matcher(strCopy2);
-	    	int pinyinIndex = 0;
-	    	while (m.find()) {
-	    		String matchedSpecial = m.group(1);
-	    		int matchIndex = strCopy2.indexOf(matchedSpecial, pinyinIndex);
-	    		// Look for the position that the matched special should go into
-	    		int curPos = 0;
-	    		for (int i = 0; i < tempList2.size(); i++)
-	    		{
-	    			String pinyin = tempList2.get(i);
-	    			Matcher m2 = pat.matcher(pinyin);
-	    			if (!m2.find())
-	    			{
-		    			curPos += pinyin.length();
-		    			if (curPos == matchIndex) {
-		    				pinyinIndex = i;
-		    				break;
-		    			}
-	    			}
-	    		}
-	    		// Look for the position that the matched special should go into
-	    		tempList2.add(pinyinIndex+1, matchedSpecial);
-	    		pinyinIndex += 2;
-	    		// remove matches from string so we can find duplicates
-	    		strCopy2 = strCopy2.replaceFirst("["+matchedSpecial+"]+", "");
-	    	}
-	    	
-	//    	List<String> result = new ArrayList<String>();
-	//    	for (String item : tempList)
-	//    	{
-	//    		if (item != null)
-	//    			result.add(item);
-	//    	}
-	//    	return result.toArray(new String[0]);
-	    	return tempList2.toArray(new String[0]);
-    	}catch (Exception ex)
+    		int end = mPinyinTrie.findLongestMatch(stringOfPinyin, start);
+    		if (end > start)
+    		{
+    			String pinyin;
+    			if (end < length && isTone(stringOfPinyin.charAt(end)))
+    			{
+    				end++;
+    				pinyin = stringOfPinyin.substring(start, end);
+    			}else if (addNeutralTone)
+    			{
+    				pinyin = stringOfPinyin.substring(start, end) + NEUTRAL_TONE;
+    			}else
+    			{
+    				pinyin = stringOfPinyin.substring(start, end);
+    			}
+    			pinyinList.add(pinyin);
+    		}else if (isSpecial(stringOfPinyin.charAt(start)))
+    		{
+    			end = start + 1;
+    			while (end < length && isSpecial(stringOfPinyin.charAt(end)))
+    			{
+    				end++;
+    			}
+    			if (specialsList == null)
+    			{
+    				specialsList = new ArrayList<String>();
+    			}
+    			specialsList.add(stringOfPinyin.substring(start, end));
+    		}else
+    		{
+    			// Not pinyin, so skip it.
+    			end = start + 1;
+    		}
+    		start = end;
+    	}
+    	if (specialsList != null)
+    	{
+    		try
+    		{
+    			insertSpecials(stringOfPinyin, pinyinList, specialsList);
+    		}catch (IndexOutOfBoundsException ex)
+    		{
+    			throw new IllegalArgumentException(
+    					"Invalid pinyin: '" + stringOfPinyin + "'", 
+    					ex);
+    		}
+    	}
+    	return pinyinList.toArray(new String[pinyinList.size()]);
+    }
+    
+    /**
+     * Add the runs of special characters to the list of pinyin. Each run
+     * goes after the pinyin that ends where the run starts, counting only
+     * pinyin and later special characters. If there isn't one, it goes two
+     * places after the previous run. That puts specials at the start after
+     * the first pinyin, and can move specials that come after dropped 
+     * characters, but it's how the words have always been split.
+     */
+    private static void insertSpecials(
+    		String stringOfPinyin, 
+    		List<String> pinyinList, 
+    		List<String> specialsList)
+    {
+    	// The text with the runs that have already been added removed.
+    	StringBuilder remaining = new StringBuilder(stringOfPinyin);
+    	int pinyinIndex = 0;
+    	for (String specials : specialsList)
     	{
-    		throw new IllegalArgumentException("Invalid pinyin: '" + stringOfPinyin + "'", ex);
+    		// The previous list index is also where the search starts.
+    		int matchIndex = remaining.indexOf(specials, pinyinIndex);
+    		int curPos = 0;
+    		for (int i = 0; i < pinyinList.size(); i++)
+    		{
+    			String pinyin = pinyinList.get(i);
+    			if ( ! isSpecial(pinyin.charAt(0)))
+    			{
+    				curPos += pinyin.length();
+    				if (curPos == matchIndex)
+    				{
+    					pinyinIndex = i;
+    					break;
+    				}
+    			}
+    		}
+    		pinyinList.add(pinyinIndex + 1, specials);
+    		pinyinIndex += 2;
+    		
+    		// Remove the first run of the same characters.
+    		int runStart = 0;
+    		while (runStart < remaining.length() && 
+    				specials.indexOf(remaining.charAt(runStart)) < 0)
+    		{
+    			runStart++;
+    		}
+    		int runEnd = runStart;
+    		while (runEnd < remaining.length() && 
+    				specials.indexOf(remaining.charAt(runEnd)) >= 0)
+    		{
+    			runEnd++;
+    		}
+    		remaining.delete(runStart, runEnd);
     	}
     }
+    
+    private static boolean isTone(char c)
+    {
+    	return ('1' <= c && c <= '4') || c == '_';
+    }
+    
+    private static boolean isSpecial(char c)
+    {
+    	return SPECIAL_CHARS.indexOf(c) >= 0;
+    }
 	
     /**
      * Adds tone mark to a single pinyin character 
@@ -336,8 +433,7 @@ public class ParserUtils {
     {
         StringBuffer unicode = new StringBuffer();
         // look for the first vowel in the word
-        Pattern pat = Pattern.compile(ParserUtils.PINYIN_REGEX);
-        Matcher m = pat.matcher(pinyin);
+        Matcher m = mPinyinPattern.matcher(pinyin);
         if (m.find())
         {
             String startSyllable = pinyin.substring(0, m.start());
@@ -366,8 +462,7 @@ public class ParserUtils {
                 throw new IllegalArgumentException("invalid single pinyin string: " + pinyin);
             }   
             // look for the substitutable character delimiter.  
-            pat = Pattern.compile("//.:?.//");
-            m = pat.matcher(tempStr);
+            m = mSubstitutionPattern.matcher(tempStr);
             StringBuffer sb = new StringBuffer();
             if (m.find())
             {
@@ -389,18 +484,4 @@ public class ParserUtils {
         
         return unicode.toString();
     }
-    
-    /**
-     * A string of asterisks (*) of length i
-	 * @param maskLength the number of asterisks
-	 * @return a string of asterisks
-	 */
-	private static String getMask(int maskLength) {
-		StringBuffer sb = new StringBuffer();
-		for (int i = 0; i < maskLength; i++)
-		{
-			sb.append("*");
-		}
-		return sb.toString();
-	}
 }
@@ -0,0 +1,76 @@
+package com.google.code.donkirkby;
+
+/**
+ * Finds the longest pinyin syllable at a position in a string, ignoring
+ * case. Syllables use the letters a to z and the colon in u:.
+ */
+class PinyinTrie {
+	private static final int CHILD_COUNT = 27;
+	private static final int COLON_INDEX = 26;
+
+	private final Node root = new Node();
+
+	/**
+	 * @param syllables all the valid syllables, without tones.
+	 */
+	public PinyinTrie(String[] syllables) {
+		for (String syllable : syllables) {
+			Node node = root;
+			for (int i = 0; i < syllable.length(); i++) {
+				int index = findChildIndex(syllable.charAt(i));
+				if (index < 0)
+				{
+					throw new IllegalArgumentException(
+							"Invalid pinyin syllable: '" + syllable + "'");
+				}
+				if (node.children[index] == null)
+				{
+					node.children[index] = new Node();
+				}
+				node = node.children[index];
+			}
+			node.isSyllable = true;
+		}
+	}
+
+	/**
+	 * @param text the text to search
+	 * @param start where the syllable has to start
+	 * @return the end of the longest syllable that starts at start, or
+	 * start if there is none.
+	 */
+	public int findLongestMatch(CharSequence text, int start) {
+		int end = start;
+		Node node = root;
+		for (int i = start; i < text.length(); i++) {
+			int index = findChildIndex(text.charAt(i));
+			node = index < 0 ? null : node.children[index];
+			if (node == null)
+			{
+				break;
+			}
+			if (node.isSyllable)
+			{
+				end = i + 1;
+			}
+		}
+		return end;
+	}
+
+	private static int findChildIndex(char c) {
+		if ('a' <= c && c <= 'z')
+		{
+			return c - 'a';
+		}
+		if ('A' <= c && c <= 'Z')
+		{
+			return c - 'A';
+		}
+		return c == ':' ? COLON_INDEX : -1;
+	}
+
+	private static class Node {
+		final Node[] children = new Node[CHILD_COUNT];
+		boolean isSyllable;
+	}
+}
@@ -3,7 +3,9 @@ package com.google.code.donkirkby;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class SampleBuilder {
 	private RankFinder rankFinder;
@@ -14,25 +16,34 @@ public class SampleBuilder {
 		int numSamplesFound = 0;
 		int characterRank = rankFinder.getCharacterRank(
 				characterEntries[0].getTraditionalChars());
+		List<EntryValue> knownWordEntries = new ArrayList<EntryValue>();
+		for (EntryValue wordEntry : wordEntries) {
+			String word = wordEntry.getTraditionalChars();
+			if (rankFinder.containsWord(word)) {
+				wordEntry.setRank(rankFinder.getWordRank(word));
+				knownWordEntries.add(wordEntry);
+			}
+		}
+		// The character entries are usually all for the same character,
+		// so the words only get indexed once.
+		SampleIndex sampleIndex = null;
 		List<EntryValue> knownCharacterEntries = new ArrayList<EntryValue>();
 		for (EntryValue characterEntry : characterEntries) {
 			characterEntry.setRank(characterRank);
-			for (EntryValue wordEntry : wordEntries) {
-				String word = wordEntry.getTraditionalChars();
-				if (rankFinder.containsWord(word)) {
-					boolean isMatchingPinyin = 
-						isMatchingPinyin(characterEntry, wordEntry);
-					int wordRank = rankFinder.getWordRank(word);
-					wordEntry.setRank(wordRank);
-					EntryValue currentSample = characterEntry.getSample();
-					boolean isBest = isMatchingPinyin
-						&& (currentSample == null 
-								|| wordRank < currentSample.getRank());
-					if (isBest)
-					{
-						characterEntry.setSample(wordEntry);
-					}
-				}
+			char character = characterEntry.getTraditionalChars().charAt(0);
+			if (sampleIndex == null || sampleIndex.character != character)
+			{
+				sampleIndex = new SampleIndex(character, knownWordEntries);
+			}
+			EntryValue sample = 
+				sampleIndex.findSample(characterEntry.getPinyin());
+			EntryValue currentSample = characterEntry.getSample();
+			boolean isBest = sample != null
+				&& (currentSample == null 
+						|| sample.getRank() < currentSample.getRank());
+			if (isBest)
+			{
+				characterEntry.setSample(sample);
 			}
 			knownCharacterEntries.add(characterEntry);
 			if (characterEntry.getSample() != null) {
@@ -75,27 +86,85 @@ public class SampleBuilder {
 		return knownCharacterEntries.toArray(result);
 	}
 
-	private boolean isMatchingPinyin(EntryValue characterEntry,
-			EntryValue wordEntry) {
-		char character = characterEntry.getTraditionalChars().charAt(0);
-		char[] characters = wordEntry.getTraditionalChars().toCharArray();
-		String[] wordPinyins = wordEntry.getPinyin().split(" ");
-		for (int i = 0; i < characters.length; i++) {
-			char c = characters[i];
-			if (c == character)
-			{
-				if (i < wordPinyins.length)
+	/**
+	 * Finds the best sample word for each pronunciation of a character.
+	 * A word matches a pronunciation if the syllable at the character's 
+	 * first position in the word is the same, ignoring case. The best 
+	 * sample is the most common word, or the first one if there's a tie.
+	 */
+	private static class SampleIndex {
+		private final char character;
+		private final List<EntryValue> wordEntries;
+		/** The best word index for each syllable, with its case folded. */
+		private final Map<String, Integer> bestIndexes = 
+			new HashMap<String, Integer>();
+		/** 
+		 * The best word index where the character has no syllable, like 
+		 * the er in zher. Those words match any pronunciation.
+		 */
+		private int bestWildcardIndex = -1;
+
+		public SampleIndex(char character, List<EntryValue> wordEntries) {
+			this.character = character;
+			this.wordEntries = wordEntries;
+			for (int i = 0; i < wordEntries.size(); i++) {
+				EntryValue wordEntry = wordEntries.get(i);
+				int position = 
+					wordEntry.getTraditionalChars().indexOf(character);
+				if (position < 0)
 				{
-					return wordPinyins[i].equalsIgnoreCase(
-							characterEntry.getPinyin());
-				}else
+					continue;
+				}
+				String[] wordPinyins = wordEntry.getPinyin().split(" ");
+				if (position < wordPinyins.length)
+				{
+					String syllable = foldCase(wordPinyins[position]);
+					Integer bestIndex = bestIndexes.get(syllable);
+					if (bestIndex == null || isBetter(i, bestIndex))
+					{
+						bestIndexes.put(syllable, i);
+					}
+				}else if (bestWildcardIndex < 0 || 
+						isBetter(i, bestWildcardIndex))
 				{
-					// special case for er as in zher.
-					return true;
+					bestWildcardIndex = i;
 				}
 			}
 		}
-		return false;
+
+		/**
+		 * @param pinyin the pronunciation of the character
+		 * @return the best sample word, or null if none match.
+		 */
+		public EntryValue findSample(String pinyin) {
+			Integer bestIndex = 
+				pinyin == null ? null : bestIndexes.get(foldCase(pinyin));
+			int sampleIndex = bestIndex == null ? -1 : bestIndex;
+			if (bestWildcardIndex >= 0 && 
+					(sampleIndex < 0 || isBetter(bestWildcardIndex, sampleIndex)))
+			{
+				sampleIndex = bestWildcardIndex;
+			}
+			return sampleIndex < 0 ? null : wordEntries.get(sampleIndex);
+		}
+
+		private boolean isBetter(int index, int otherIndex) {
+			int rank = wordEntries.get(index).getRank();
+			int otherRank = wordEntries.get(otherIndex).getRank();
+			return rank < otherRank || (rank == otherRank && index < otherIndex);
+		}
+
+		/**
+		 * Fold the case of each character the same way that
+		 * String.equalsIgnoreCase() compares them.
+		 */
+		private static String foldCase(String text) {
+			char[] chars = text.toCharArray();
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+			}
+			return new String(chars);
+		}
 	}
 
 	public RankFinder getRankFinder() {
@@ -109,19 +178,17 @@ public class SampleBuilder {
 	public EntryValue[] filterWords(
 			EntryValue[] wordEntries,
 			int maxCharacterRank) {
+		String[] traditionals = new String[wordEntries.length];
+		for (int i = 0; i < wordEntries.length; i++) {
+			traditionals[i] = wordEntries[i].getTraditionalChars();
+		}
+		boolean[] isCommon = 
+			rankFinder.findCommonWords(traditionals, maxCharacterRank);
 		List<EntryValue> filteredEntries = new ArrayList<EntryValue>();
-		for (EntryValue wordEntry : wordEntries) {
-			String traditional = wordEntry.getTraditionalChars();
-			boolean isRare = !rankFinder.containsWord(traditional);
-			for (int i = 0; i < traditional.length() && !isRare; i++)
-			{
-				String character = traditional.substring(i, i+1);
-				int characterRank = rankFinder.getCharacterRank(character);
-				isRare = characterRank > maxCharacterRank;
-			}
-			if (!isRare)
+		for (int i = 0; i < wordEntries.length; i++) {
+			if (isCommon[i])
 			{
-				filteredEntries.add(wordEntry);
+				filteredEntries.add(wordEntries[i]);
 			}
 		}
 		EntryValue[] result = new EntryValue[filteredEntries.size()];
@@ -1,12 +1,15 @@
 package com.google.code.donkirkby;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 
 public class SortingRankReader implements RankReader {
+	private static final int BATCH_SIZE = 1024;
+
 	private RankReader rankReader;
 	private RankFinder rankFinder;
 	private List<String> items;
@@ -35,15 +38,27 @@ public class SortingRankReader implements RankReader {
 		return nextItem;
 	}
 
+	@Override
+	public int nextItems(int maxCount, String[] items) {
+		int count = 0;
+		while (count < maxCount && hasNext())
+		{
+			items[count++] = nextItem();
+		}
+		return count;
+	}
+
 	@Override
 	public void open() {
 		items = new ArrayList<String>();
+		String[] batch = new String[BATCH_SIZE];
 		rankReader.open();
 		try
 		{
-			while (rankReader.hasNext())
+			int count;
+			while ((count = rankReader.nextItems(BATCH_SIZE, batch)) > 0)
 			{
-				items.add(rankReader.nextItem());
+				items.addAll(Arrays.asList(batch).subList(0, count));
 			}
 		}finally
 		{
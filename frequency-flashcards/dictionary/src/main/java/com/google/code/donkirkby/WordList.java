@@ -6,8 +6,13 @@ import java.util.List;
 import java.util.ListIterator;
 
 public class WordList implements WordListInterface {
+	private static final int BATCH_SIZE = 256;
+
 	private RankFinder rankFinder;
 	private RankReader wordReader;
+	private String[] pendingWords = new String[BATCH_SIZE];
+	private int pendingCount;
+	private int pendingIndex;
 	private class Entry {
 		public String word;
 		public int maxCharacterRank;
@@ -29,9 +34,28 @@ public class WordList implements WordListInterface {
 
 	public void setWordReader(RankReader wordReader) {
 		this.wordReader = wordReader;
+		pendingCount = 0;
+		pendingIndex = 0;
 		wordReader.open();
 	}
 
+	/**
+	 * Read words from the reader in batches.
+	 * @return the next word, or null if there are no more.
+	 */
+	private String nextWord() {
+		if (pendingIndex == pendingCount)
+		{
+			pendingCount = wordReader.nextItems(BATCH_SIZE, pendingWords);
+			pendingIndex = 0;
+			if (pendingCount == 0)
+			{
+				return null;
+			}
+		}
+		return pendingWords[pendingIndex++];
+	}
+
 	/* (non-Javadoc)
 	 * @see com.google.code.donkirkby.WordListInterface#iterator(int)
 	 */
@@ -73,24 +97,19 @@ public class WordList implements WordListInterface {
 				}
 				while (!listIterator.hasNext())
 				{
-					if (!wordReader.hasNext())
+					String word = nextWord();
+					if (word == null)
 					{
 						return false;
 					}
 					Entry entry = new Entry();
-					entry.word = wordReader.nextItem();
-					entry.maxCharacterRank = 0;
-					for (int i = 0; i < entry.word.length(); i++) {
-						String character = entry.word.substring(i, i+1);
-						try {
-							entry.maxCharacterRank = Math.max(
-									entry.maxCharacterRank,
-									rankFinder.getCharacterRank(character));
-						} catch (RuntimeException e) {
-							String msg = 
-								"Can't find rank of '" + character + "'.";
-							throw new RuntimeException(msg, e);
-						}
+					entry.word = word;
+					try {
+						entry.maxCharacterRank = 
+							rankFinder.getMaxCharacterRank(word);
+					} catch (RuntimeException e) {
+						String msg = "Can't find rank of '" + word + "'.";
+						throw new RuntimeException(msg, e);
 					}
 					listIterator.add(entry);
 					if (entry.maxCharacterRank <= maxCharacterRank)
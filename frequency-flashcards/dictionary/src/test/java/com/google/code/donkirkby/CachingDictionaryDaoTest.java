@@ -0,0 +1,164 @@
+package com.google.code.donkirkby;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CachingDictionaryDaoTest {
+	private long now;
+
+	private CachingDictionaryDao createCache(DictionaryDao source) {
+		CachingDictionaryDao cache = new CachingDictionaryDao() {
+			@Override
+			protected long currentTimeMillis() {
+				return now;
+			}
+		};
+		cache.setDao(source);
+		return cache;
+	}
+
+	private static EntryValue[] createEntries(String... traditionals) {
+		EntryValue[] entries = new EntryValue[traditionals.length];
+		for (int i = 0; i < traditionals.length; i++) {
+			entries[i] = new EntryValue();
+			entries[i].setTraditionalChars(traditionals[i]);
+			entries[i].setPinyin("x1");
+		}
+		return entries;
+	}
+
+	@Test
+	public void testHit() throws Exception {
+		// SETUP
+		DictionaryDao source = EasyMock.createMock(DictionaryDao.class);
+		CachingDictionaryDao cache = createCache(source);
+		EntryValue[] sourceResults = createEntries("x");
+
+		// EXPECT
+		EasyMock.expect(
+				source.findAllEntryValuesByTraditionalCharacter("x", 10))
+				.andReturn(sourceResults);
+		EasyMock.replay(source);
+
+		// EXEC
+		EntryValue[] result1 =
+			cache.findAllEntryValuesByTraditionalCharacter("x", 10);
+		result1[0].setRank(99);
+		EntryValue[] result2 =
+			cache.findAllEntryValuesByTraditionalCharacter("x", 10);
+
+		// VERIFY
+		EasyMock.verify(source);
+		Assert.assertArrayEquals("Results should match.", sourceResults, result2);
+		Assert.assertNotSame("copy", result1[0], result2[0]);
+		Assert.assertEquals("rank", 0, result2[0].getRank());
+		Assert.assertEquals("hits", 1, cache.getHitCount());
+		Assert.assertEquals("misses", 1, cache.getMissCount());
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		// SETUP
+		DictionaryDao source = EasyMock.createMock(DictionaryDao.class);
+		CachingDictionaryDao cache = createCache(source);
+		cache.setMaxWeight(5);
+
+		// EXPECT
+		EasyMock.expect(
+				source.findAllEntryValuesByTraditionalCharacter("a", 10))
+				.andReturn(createEntries("a", "ab"));
+		EasyMock.expect(
+				source.findAllEntryValuesByTraditionalCharacter("b", 10))
+				.andReturn(createEntries("b")).times(2);
+		EasyMock.expect(
+				source.findAllEntryValuesByTraditionalCharacter("c", 10))
+				.andReturn(createEntries());
+		EasyMock.replay(source);
+
+		// EXEC
+		cache.findAllEntryValuesByTraditionalCharacter("a", 10); // weight 3
+		cache.findAllEntryValuesByTraditionalCharacter("b", 10); // weight 5
+		cache.findAllEntryValuesByTraditionalCharacter("b", 10); // hit
+		cache.findAllEntryValuesByTraditionalCharacter("a", 10); // hit
+		cache.findAllEntryValuesByTraditionalCharacter("c", 10); // evicts b
+		cache.findAllEntryValuesByTraditionalCharacter("a", 10); // hit
+		cache.findAllEntryValuesByTraditionalCharacter("b", 10); // evicts c
+		cache.findAllEntryValuesByTraditionalCharacter("a", 10); // hit
+
+		// VERIFY
+		EasyMock.verify(source);
+		Assert.assertEquals("hits", 4, cache.getHitCount());
+		Assert.assertEquals("evictions", 2, cache.getEvictionCount());
+		Assert.assertEquals("size", 2, cache.getSize());
+	}
+
+	@Test
+	public void testExpiry() throws Exception {
+		// SETUP
+		DictionaryDao source = EasyMock.createMock(DictionaryDao.class);
+		CachingDictionaryDao cache = createCache(source);
+		cache.setTimeToLive(1000);
+		now = 5000;
+
+		// EXPECT
+		EasyMock.expect(
+				source.findAllEntryValuesByTraditionalCharacter("x", 10))
+				.andReturn(createEntries("x")).times(2);
+		EasyMock.replay(source);
+
+		// EXEC
+		cache.findAllEntryValuesByTraditionalCharacter("x", 10);
+		now = 5999;
+		cache.findAllEntryValuesByTraditionalCharacter("x", 10);
+		now = 6000;
+		cache.findAllEntryValuesByTraditionalCharacter("x", 10);
+
+		// VERIFY
+		EasyMock.verify(source);
+		Assert.assertEquals("hits", 1, cache.getHitCount());
+		Assert.assertEquals("evictions", 1, cache.getEvictionCount());
+	}
+
+	@Test
+	public void testBatch() throws Exception {
+		// SETUP
+		DictionaryDao source = EasyMock.createMock(DictionaryDao.class);
+		CachingDictionaryDao cache = createCache(source);
+		Map<String, EntryValue[]> sourceResults1 =
+			new HashMap<String, EntryValue[]>();
+		sourceResults1.put("a", createEntries("ab"));
+		Map<String, EntryValue[]> sourceResults2 =
+			new HashMap<String, EntryValue[]>();
+		sourceResults2.put("c", createEntries("c"));
+
+		// EXPECT
+		EasyMock.expect(source.findAllEntryValuesContainingCharacters(
+				Arrays.asList("a", "b"),
+				10)).andReturn(sourceResults1);
+		EasyMock.expect(source.findAllEntryValuesContainingCharacters(
+				Arrays.asList("c"),
+				10)).andReturn(sourceResults2);
+		EasyMock.replay(source);
+
+		// EXEC
+		cache.findAllEntryValuesContainingCharacters(Arrays.asList("a", "b"), 10);
+		Map<String, EntryValue[]> results =
+			cache.findAllEntryValuesContainingCharacters(
+					Arrays.asList("a", "b", "c"),
+					10);
+
+		// VERIFY
+		EasyMock.verify(source);
+		Assert.assertEquals("keys", "[a, c]", results.keySet().toString());
+		Assert.assertEquals(
+				"entry for a",
+				"ab",
+				results.get("a")[0].getTraditionalChars());
+		Assert.assertEquals("hits", 2, cache.getHitCount());
+	}
+}
@@ -1,5 +1,9 @@
 package com.google.code.donkirkby;
 
+import java.lang.Character.UnicodeBlock;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -53,4 +57,60 @@ public class CharacterClassifierTest {
 	public void latin() throws Exception {
 		testClassifier('X', false);
 	}
+	
+	@Test
+	public void extensionA() throws Exception {
+		testClassifier('㐀', true);
+	}
+	
+	@Test
+	public void extensionBCodePoint() throws Exception {
+		// SETUP
+		CharacterClassifier classifier = new CharacterClassifier();
+		int codePoint = "𠀀".codePointAt(0);
+		
+		// EXEC
+		boolean isChinese = classifier.isChinese(codePoint);
+		boolean isHighSurrogateChinese = classifier.isChinese("𠀀".charAt(0));
+		
+		// VERIFY
+		Assert.assertEquals("isChinese", true, isChinese);
+		Assert.assertEquals(
+				"isChinese for high surrogate", 
+				false, 
+				isHighSurrogateChinese);
+	}
+	
+	@Test
+	public void japanese() throws Exception {
+		// SETUP
+		CharacterClassifier classifier = new CharacterClassifier();
+		
+		// EXEC
+		boolean isHiraganaJapanese = classifier.isJapanese('の');
+		boolean isKatakanaJapanese = classifier.isJapanese((int)'カ');
+		boolean isHanziJapanese = classifier.isJapanese('好');
+		
+		// VERIFY
+		Assert.assertEquals("hiragana", true, isHiraganaJapanese);
+		Assert.assertEquals("katakana", true, isKatakanaJapanese);
+		Assert.assertEquals("hanzi", false, isHanziJapanese);
+	}
+	
+	@Test
+	public void configuredBlocks() throws Exception {
+		// SETUP
+		CharacterClassifier classifier = new CharacterClassifier();
+		Set<UnicodeBlock> blocks = new HashSet<UnicodeBlock>();
+		blocks.add(UnicodeBlock.CJK_SYMBOLS_AND_PUNCTUATION);
+		
+		// EXEC
+		classifier.setChineseBlocks(blocks);
+		boolean isPeriodChinese = classifier.isChinese('。');
+		boolean isHanziChinese = classifier.isChinese('好');
+		
+		// VERIFY
+		Assert.assertEquals("period", true, isPeriodChinese);
+		Assert.assertEquals("hanzi", false, isHanziChinese);
+	}
 }
@@ -0,0 +1,92 @@
+package com.google.code.donkirkby;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DeckManifestTest {
+	private File manifestFile;
+	private File deckFile;
+	private File otherDeckFile;
+
+	@Before
+	public void setUp() throws Exception {
+		manifestFile = File.createTempFile("manifest", ".txt");
+		manifestFile.delete();
+		deckFile = File.createTempFile("deck", ".xml");
+		otherDeckFile = File.createTempFile("deck", ".xml");
+	}
+
+	@After
+	public void tearDown() {
+		manifestFile.delete();
+		deckFile.delete();
+		otherDeckFile.delete();
+	}
+
+	@Test
+	public void unchangedDeck() throws Exception {
+		// SETUP
+		String deckName = deckFile.getPath();
+		String hash = DeckManifest.hash("inputs");
+		DeckManifest.load(manifestFile).record(deckName, hash);
+
+		// EXEC
+		DeckManifest manifest = DeckManifest.load(manifestFile);
+		boolean isSameCurrent = manifest.isCurrent(deckName, hash);
+		boolean isChangedCurrent = manifest.isCurrent(
+				deckName, 
+				DeckManifest.hash("changed inputs"));
+
+		// VERIFY
+		Assert.assertTrue("same inputs should be current", isSameCurrent);
+		Assert.assertFalse("changed inputs should not be current", isChangedCurrent);
+	}
+
+	@Test
+	public void missingDeckFile() throws Exception {
+		// SETUP
+		String deckName = deckFile.getPath();
+		String hash = DeckManifest.hash("inputs");
+		DeckManifest.load(manifestFile).record(deckName, hash);
+		deckFile.delete();
+
+		// EXEC
+		boolean isCurrent = 
+			DeckManifest.load(manifestFile).isCurrent(deckName, hash);
+
+		// VERIFY
+		Assert.assertFalse("deleted deck should not be current", isCurrent);
+	}
+
+	@Test
+	public void compact() throws Exception {
+		// SETUP
+		String deckName = deckFile.getPath();
+		DeckManifest oldManifest = DeckManifest.load(manifestFile);
+		oldManifest.record(deckName, DeckManifest.hash("old inputs"));
+		oldManifest.record(
+				otherDeckFile.getPath(), 
+				DeckManifest.hash("other inputs"));
+		String hash = DeckManifest.hash("inputs");
+
+		// EXEC
+		DeckManifest manifest = DeckManifest.load(manifestFile);
+		manifest.record(deckName, hash);
+		manifest.compact();
+		DeckManifest compactedManifest = DeckManifest.load(manifestFile);
+
+		// VERIFY
+		Assert.assertTrue(
+				"recorded deck should be current", 
+				compactedManifest.isCurrent(deckName, hash));
+		Assert.assertFalse(
+				"old deck should be dropped", 
+				compactedManifest.isCurrent(
+						otherDeckFile.getPath(), 
+						DeckManifest.hash("other inputs")));
+	}
+}
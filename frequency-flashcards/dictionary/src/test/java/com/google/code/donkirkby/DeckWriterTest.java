@@ -1,6 +1,11 @@
 package com.google.code.donkirkby;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
 import java.io.StringWriter;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -82,4 +87,83 @@ public class DeckWriterTest {
 				"</item>\r\n",
 				stringWriter.toString());
 	}
+	
+	@Test
+	public void testContinueCards() throws Exception {
+		// SETUP
+		StringWriter laterWriter = new StringWriter();
+		DeckWriter laterCards = new DeckWriter();
+		laterCards.setWriter(laterWriter);
+		laterCards.setCardNumber(1);
+		StringWriter stringWriter = new StringWriter();
+		DeckWriter writer = new DeckWriter();
+		writer.setWriter(stringWriter);
+		
+		// EXEC
+		laterCards.writeCard("Capitals", "Quebec", "Quebec City");
+		laterCards.writeFooter();
+		writer.writeCard("Capitals", "Ontario", "Toronto");
+		int cardNumber = writer.getCardNumber();
+		writer.writeFormatted(laterWriter.toString());
+		
+		// VERIFY
+		Assert.assertEquals("Card number should match", 1, cardNumber);
+		Assert.assertEquals(
+				"Text should match",
+				"<item id='_0'>\r\n" +
+				"<cat>Capitals</cat>\r\n" +
+				"<Q>Ontario</Q>\r\n" +
+				"<A>Toronto</A>\r\n" +
+				"</item>\r\n" +
+				"<item id='_1'>\r\n" +
+				"<cat>Capitals</cat>\r\n" +
+				"<Q>Quebec</Q>\r\n" +
+				"<A>Quebec City</A>\r\n" +
+				"</item>\r\n" +
+				"</mnemosyne>\r\n",
+				stringWriter.toString());
+	}
+	
+	@Test
+	public void testCompressedFile() throws Exception {
+		// SETUP
+		File file = File.createTempFile("deck", ".xml.gz");
+		DeckWriter writer = new DeckWriter();
+		
+		// EXEC
+		try
+		{
+			writer.open(file.getPath());
+			writer.writeCard("Capitals", "Ontario", "Toronto & <more>");
+			writer.close();
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					new GZIPInputStream(new FileInputStream(file)),
+					"UTF-8"));
+			StringBuilder text = new StringBuilder();
+			try
+			{
+				String line;
+				while ((line = reader.readLine()) != null)
+				{
+					text.append(line).append('\n');
+				}
+			}finally
+			{
+				reader.close();
+			}
+			
+			// VERIFY
+			Assert.assertEquals(
+					"Text should match",
+					"<item id='_0'>\n" +
+					"<cat>Capitals</cat>\n" +
+					"<Q>Ontario</Q>\n" +
+					"<A>Toronto &amp; &lt;more&gt;</A>\n" +
+					"</item>\n",
+					text.toString());
+		}finally
+		{
+			file.delete();
+		}
+	}
 }
@@ -0,0 +1,332 @@
+package com.google.code.donkirkby;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DictionaryAppTest {
+	private static final String[] CHARACTERS = {"a", "b", "c", "d", "e", "f"};
+	private static final String[] WORDS = {"ab", "cd"};
+
+	private List<File> deckFolders = new ArrayList<File>();
+
+	@After
+	public void tearDown() {
+		for (File deckFolder : deckFolders) {
+			for (File deckFile : deckFolder.listFiles()) {
+				deckFile.delete();
+			}
+			deckFolder.delete();
+		}
+	}
+
+	private File createDeckFolder() throws Exception {
+		File deckFolder = File.createTempFile("decks", "");
+		deckFolder.delete();
+		deckFolder.mkdir();
+		deckFolders.add(deckFolder);
+		return deckFolder;
+	}
+
+	private DictionaryApp createApp(MockDictionaryDao dao, File deckFolder) {
+		RankFinder rankFinder = new RankFinder();
+		rankFinder.setCharacterReader(new MockRankReader(CHARACTERS));
+		rankFinder.setWordReader(new MockRankReader(WORDS));
+		rankFinder.setMaxCharacters(CHARACTERS.length);
+		SampleBuilder sampleBuilder = new SampleBuilder();
+		sampleBuilder.setRankFinder(rankFinder);
+		WordList wordList = new WordList();
+		wordList.setRankFinder(rankFinder);
+		wordList.setWordReader(new MockRankReader(WORDS));
+
+		DictionaryApp app = new DictionaryApp();
+		app.setDao(dao);
+		app.setCharacterReader(new MockRankReader(CHARACTERS));
+		app.setRankFinder(rankFinder);
+		app.setSampleBuilder(sampleBuilder);
+		app.setWordList(wordList);
+		app.setDeckNameTemplate(
+				new File(deckFolder, "deck#{minrank}-#{maxrank}.xml").getPath());
+		app.setCategoryTemplate("#{minrank}-#{maxrank}");
+		app.setDeckSize(2);
+		app.setCharacterLimit(5);
+		return app;
+	}
+
+	@Test
+	public void generateCardsWithoutPrefetch() throws Exception {
+		// SETUP
+		File deckFolder = createDeckFolder();
+		DictionaryApp app = createApp(new MockDictionaryDao(), deckFolder);
+		app.setPrefetchCount(0);
+
+		// EXEC
+		app.generateCards();
+
+		// VERIFY
+		Assert.assertEquals(
+				"decks should match",
+				"deck0001-0002.xml: a b | ab\n" +
+				"deck0003-0004.xml: c d | cd\n" +
+				"deck0005-0005.xml: e |\n",
+				summarizeDecks(deckFolder));
+	}
+
+	@Test
+	public void generateCardsWithPrefetch() throws Exception {
+		// SETUP
+		File expectedFolder = createDeckFolder();
+		DictionaryApp expectedApp = 
+			createApp(new MockDictionaryDao(), expectedFolder);
+		expectedApp.setPrefetchCount(0);
+		expectedApp.generateCards();
+		File deckFolder = createDeckFolder();
+		DictionaryApp app = createApp(new MockDictionaryDao(), deckFolder);
+		app.setPrefetchCount(2);
+		app.setPrefetchThreadCount(2);
+
+		// EXEC
+		app.generateCards();
+
+		// VERIFY
+		Assert.assertEquals(
+				"decks should match",
+				"deck0001-0002.xml: a b | ab\n" +
+				"deck0003-0004.xml: c d | cd\n" +
+				"deck0005-0005.xml: e |\n",
+				summarizeDecks(deckFolder));
+		for (String deckName : expectedFolder.list()) {
+			Assert.assertEquals(
+					"contents of " + deckName + " should match",
+					readFile(new File(expectedFolder, deckName)),
+					readFile(new File(deckFolder, deckName)));
+		}
+	}
+
+	@Test
+	public void skipOnlyFailingCharacter() throws Exception {
+		// SETUP
+		File deckFolder = createDeckFolder();
+		MockDictionaryDao dao = new MockDictionaryDao();
+		dao.failingCharacter = "c";
+		DictionaryApp app = createApp(dao, deckFolder);
+
+		// EXEC
+		app.generateCards();
+
+		// VERIFY
+		Assert.assertEquals(
+				"decks should match",
+				"deck0001-0002.xml: a b | ab\n" +
+				"deck0004-0004.xml: d | cd\n" +
+				"deck0005-0005.xml: e |\n",
+				summarizeDecks(deckFolder));
+	}
+
+	@Test
+	public void lookUpEachWordWhenBatchFails() throws Exception {
+		// SETUP
+		File deckFolder = createDeckFolder();
+		MockDictionaryDao dao = new MockDictionaryDao();
+		dao.isBatchFailing = true;
+		DictionaryApp app = createApp(dao, deckFolder);
+
+		// EXEC
+		app.generateCards();
+
+		// VERIFY
+		Assert.assertEquals(
+				"decks should match",
+				"deck0001-0002.xml: a b | ab\n" +
+				"deck0003-0004.xml: c d | cd\n" +
+				"deck0005-0005.xml: e |\n",
+				summarizeDecks(deckFolder));
+	}
+
+	@Test
+	public void skipOnlyFailingWord() throws Exception {
+		// SETUP
+		File deckFolder = createDeckFolder();
+		MockDictionaryDao dao = new MockDictionaryDao();
+		dao.failingCharacter = "ab";
+		DictionaryApp app = createApp(dao, deckFolder);
+		app.setDeckSize(4); // look up both words in one batch
+
+		// EXEC
+		app.generateCards();
+
+		// VERIFY
+		Assert.assertEquals(
+				"decks should match",
+				"deck0001-0004.xml: a b c d | cd\n" +
+				"deck0005-0005.xml: e |\n",
+				summarizeDecks(deckFolder));
+	}
+
+	/**
+	 * List each deck with the questions from its Hanzi cards, in order, and
+	 * then the questions from its word cards.
+	 */
+	private static String summarizeDecks(File deckFolder) throws Exception {
+		String[] deckNames = deckFolder.list();
+		Arrays.sort(deckNames);
+		StringBuilder summary = new StringBuilder();
+		for (String deckName : deckNames) {
+			StringBuilder characters = new StringBuilder();
+			StringBuilder words = new StringBuilder();
+			String category = null;
+			for (String line : readFile(new File(deckFolder, deckName)).split("\r?\n")) {
+				if (line.startsWith("<cat>"))
+				{
+					category = line;
+				}else if (line.startsWith("<Q>"))
+				{
+					String question = line.substring(3, line.length() - 4);
+					if (category.endsWith("Hanzi</cat>"))
+					{
+						characters.append(" ").append(question);
+					}else if (category.endsWith("Words</cat>"))
+					{
+						words.append(" ").append(question);
+					}
+				}
+			}
+			summary.append(deckName).append(":").append(characters);
+			summary.append(" |").append(words).append("\n");
+		}
+		return summary.toString();
+	}
+
+	private static String readFile(File file) throws Exception {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(file),
+				"UTF-8"));
+		try
+		{
+			StringBuilder text = new StringBuilder();
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				text.append(line).append("\n");
+			}
+			return text.toString();
+		}finally
+		{
+			reader.close();
+		}
+	}
+
+	/**
+	 * Finds entries in a short list, and returns new copies each time,
+	 * because the app sets their ranks and samples. It can be called from
+	 * several threads at once.
+	 */
+	private static class MockDictionaryDao implements DictionaryDao {
+		private List<EntryValue> entries = new ArrayList<EntryValue>();
+		/** Any query for this character fails, or null. */
+		private String failingCharacter;
+		/** True if every batch query fails. */
+		private boolean isBatchFailing;
+
+		public MockDictionaryDao() {
+			addEntry("a", "a1");
+			addEntry("b", "ba1");
+			addEntry("c", "ci1");
+			addEntry("d", "de1");
+			addEntry("e", "e1");
+			addEntry("f", "fa1");
+			addEntry("ab", "a1 ba1");
+			addEntry("cd", "ci1 de1");
+		}
+
+		private void addEntry(String characters, String pinyin) {
+			EntryValue entry = new EntryValue();
+			entry.setId(entries.size());
+			entry.setTraditionalChars(characters);
+			entry.setSimplifiedChars(characters);
+			entry.setPinyin(pinyin);
+			entry.setDefinition("meaning of " + characters);
+			entries.add(entry);
+		}
+
+		public EntryValue[] findAllEntryValuesByTraditionalCharacter(
+				String character,
+				int maxResults) {
+			boolean isContaining =
+				character.startsWith("%") && character.endsWith("%");
+			String target =
+				isContaining
+				? character.substring(1, character.length() - 1)
+				: character;
+			checkFailure(target);
+			List<EntryValue> results = new ArrayList<EntryValue>();
+			for (EntryValue entry : entries) {
+				String traditional = entry.getTraditionalChars();
+				boolean isMatch =
+					isContaining
+					? traditional.contains(target)
+					: traditional.equals(target);
+				if (isMatch && results.size() < maxResults)
+				{
+					results.add(entry.copy());
+				}
+			}
+			return results.toArray(new EntryValue[results.size()]);
+		}
+
+		public Map<String, EntryValue[]> findAllEntryValuesByTraditionalCharacters(
+				Collection<String> characters,
+				int maxResults) {
+			return findEach(characters, "", maxResults);
+		}
+
+		public Map<String, EntryValue[]> findAllEntryValuesContainingCharacters(
+				Collection<String> characters,
+				int maxResults) {
+			return findEach(characters, "%", maxResults);
+		}
+
+		private Map<String, EntryValue[]> findEach(
+				Collection<String> characters,
+				String wildcard,
+				int maxResults) {
+			if (isBatchFailing)
+			{
+				throw new RuntimeException("Failed to find batch.");
+			}
+			for (String character : characters) {
+				checkFailure(character);
+			}
+			Map<String, EntryValue[]> results =
+				new LinkedHashMap<String, EntryValue[]>();
+			for (String character : characters) {
+				EntryValue[] found = findAllEntryValuesByTraditionalCharacter(
+						wildcard + character + wildcard,
+						maxResults);
+				if (found.length > 0)
+				{
+					results.put(character, found);
+				}
+			}
+			return results;
+		}
+
+		private void checkFailure(String character) {
+			if (character.equals(failingCharacter))
+			{
+				throw new RuntimeException("Failed to find " + character + ".");
+			}
+		}
+	}
+}
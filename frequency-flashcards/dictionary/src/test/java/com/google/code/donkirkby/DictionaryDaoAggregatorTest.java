@@ -1,7 +1,10 @@
 package com.google.code.donkirkby;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.easymock.EasyMock;
 import org.junit.Assert;
@@ -219,4 +222,150 @@ public class DictionaryDaoAggregatorTest {
 		EasyMock.verify(source1);
 		EasyMock.verify(source2);
 	}
+	
+	@Test
+	public void testBatch() throws Exception {
+		// SETUP
+		List<DictionaryDao> sources = new ArrayList<DictionaryDao>();
+		DictionaryDao source1 = EasyMock.createMock(DictionaryDao.class);
+		sources.add(source1);
+		sources.add(new CustomDictionaryDao());
+		
+		DictionaryDaoAggregator aggregator = new DictionaryDaoAggregator();
+		aggregator.setSources(sources);
+		
+		List<String> expectedCharacters = Arrays.asList("x", "算", "y");
+		int expectedMaxResults = 100;
+		
+		EntryValue xEntry = new EntryValue();
+		xEntry.setTraditionalChars("x");
+		xEntry.setPinyin("x1");
+		EntryValue suanEntry = new EntryValue();
+		suanEntry.setTraditionalChars("算");
+		suanEntry.setPinyin("suan4");
+		Map<String, EntryValue[]> source1Results = 
+			new HashMap<String, EntryValue[]>();
+		source1Results.put("x", new EntryValue[] {xEntry});
+		source1Results.put("算", new EntryValue[] {suanEntry});
+
+		// EXPECT
+		EasyMock.expect(
+				source1.findAllEntryValuesByTraditionalCharacters(
+						expectedCharacters,
+						expectedMaxResults)).andReturn(source1Results);
+		EasyMock.replay(source1);
+		
+		// EXEC
+		Map<String, EntryValue[]> result = 
+			aggregator.findAllEntryValuesByTraditionalCharacters(
+					expectedCharacters, 
+					expectedMaxResults);
+		
+		// VERIFY
+		Assert.assertArrayEquals(
+				"x results should match.",
+				new EntryValue[] {xEntry},
+				result.get("x"));
+		Assert.assertEquals(
+				"Number of suan results should match.",
+				2,
+				result.get("算").length);
+		Assert.assertFalse("Should not contain y.", result.containsKey("y"));
+		EasyMock.verify(source1);
+	}
+	
+	@Test
+	public void testMergeManySources() throws Exception {
+		// SETUP
+		List<DictionaryDao> sources = new ArrayList<DictionaryDao>();
+		String[][] traditionals = new String[][] {
+				{"d", "b", "d"},
+				{"c", "a"},
+				{},
+				{"b", "e"}
+		};
+		for (int i = 0; i < traditionals.length; i++) {
+			EntryValue[] entries = new EntryValue[traditionals[i].length];
+			for (int j = 0; j < entries.length; j++) {
+				entries[j] = new EntryValue();
+				entries[j].setTraditionalChars(traditionals[i][j]);
+				entries[j].setPinyin("x1");
+				entries[j].setDefinition("source " + i + " entry " + j);
+			}
+			DictionaryDao source = EasyMock.createMock(DictionaryDao.class);
+			EasyMock.expect(
+					source.findAllEntryValuesByTraditionalCharacter("x", 10))
+					.andReturn(entries);
+			EasyMock.replay(source);
+			sources.add(source);
+		}
+		
+		DictionaryDaoAggregator aggregator = new DictionaryDaoAggregator();
+		aggregator.setSources(sources);
+		
+		// EXEC
+		EntryValue[] result = 
+			aggregator.findAllEntryValuesByTraditionalCharacter("x", 10);
+		
+		// VERIFY
+		StringBuilder definitions = new StringBuilder();
+		for (EntryValue entry : result) {
+			definitions.append(entry.getDefinition()).append(", ");
+		}
+		Assert.assertEquals(
+				"Definitions should match.",
+				"source 1 entry 1, source 0 entry 1, source 1 entry 0, " +
+				"source 0 entry 0, source 3 entry 1, ",
+				definitions.toString());
+	}
+	
+	@Test
+	public void testTimeout() throws Exception {
+		// SETUP
+		DictionaryDao fastSource = EasyMock.createMock(DictionaryDao.class);
+		EasyMock.expect(
+				fastSource.findAllEntryValuesByTraditionalCharacter("x", 10))
+				.andReturn(new EntryValue[0]);
+		EasyMock.replay(fastSource);
+		DictionaryDao slowSource = new CustomDictionaryDao() {
+			@Override
+			public EntryValue[] findAllEntryValuesByTraditionalCharacter(
+					String character, int maxResults) {
+				try {
+					Thread.sleep(10000);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return new EntryValue[0];
+			}
+			
+			@Override
+			public String toString() {
+				return "slow";
+			}
+		};
+		List<DictionaryDao> sources = new ArrayList<DictionaryDao>();
+		sources.add(fastSource);
+		sources.add(slowSource);
+		
+		DictionaryDaoAggregator aggregator = new DictionaryDaoAggregator();
+		aggregator.setSources(sources);
+		aggregator.setTimeout(100);
+		
+		// EXEC
+		String message = null;
+		try
+		{
+			aggregator.findAllEntryValuesByTraditionalCharacter("x", 10);
+		}catch (RuntimeException e)
+		{
+			message = e.getMessage();
+		}
+		
+		// VERIFY
+		Assert.assertEquals(
+				"Message should match.",
+				"Dictionary source slow took longer than 100 ms.",
+				message);
+	}
 }
@@ -0,0 +1,235 @@
+package com.google.code.donkirkby;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Runs the queries against an in-memory HSQLDB database, so the SQL gets
+ * tested, not just the code around it.
+ */
+public class DictionaryDaoImplTest {
+	/** More than one batch, so the last batch is short. */
+	private static final int CHARACTER_COUNT = 130;
+	private static int databaseCount;
+
+	private DriverManagerDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+	private List<String> characters;
+	private int nextId;
+
+	@Before
+	public void setUp() throws Exception {
+		dataSource = new DriverManagerDataSource();
+		dataSource.setDriverClassName("org.hsqldb.jdbcDriver");
+		dataSource.setUrl("jdbc:hsqldb:mem:dictionary" + databaseCount++);
+		dataSource.setUsername("sa");
+		dataSource.setPassword("");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute(
+				"CREATE TABLE character (" +
+				"character_id INTEGER PRIMARY KEY, " +
+				"traditional_char VARCHAR(20), " +
+				"simplified_char VARCHAR(20), " +
+				"pinyin VARCHAR(50), " +
+				"definition VARCHAR(100))");
+		characters = new ArrayList<String>();
+		for (int i = 0; i < CHARACTER_COUNT; i++) {
+			characters.add(String.valueOf((char) (0x4E00 + i)));
+		}
+		String first = characters.get(0);
+		for (int i = 0; i < CHARACTER_COUNT; i++) {
+			String character = characters.get(i);
+			addEntry(character, "yi1");
+			if (i % 3 == 0)
+			{
+				addEntry(character, "er4");
+			}
+			if (i + 1 < CHARACTER_COUNT)
+			{
+				addEntry(character + characters.get(i + 1), "yi1 er4");
+			}
+			if (i % 10 == 0)
+			{
+				addEntry(character + character + first, "yi1 yi1 yi1");
+			}
+		}
+		// No entries contain this one.
+		characters.add("x");
+		// A broken row with no traditional characters.
+		jdbcTemplate.update(
+				"INSERT INTO character VALUES (?, NULL, ?, ?, ?)",
+				new Object[] {
+						new Integer(nextId++),
+						first,
+						"yi1",
+						"/broken/"});
+	}
+
+	@After
+	public void tearDown() {
+		jdbcTemplate.execute("SHUTDOWN");
+	}
+
+	private void addEntry(String traditional, String pinyin) {
+		int id = nextId++;
+		jdbcTemplate.update(
+				"INSERT INTO character VALUES (?, ?, ?, ?, ?)",
+				new Object[] {
+						new Integer(id),
+						traditional,
+						traditional,
+						pinyin,
+						"/meaning " + id + "/"});
+	}
+
+	private DictionaryDaoImpl createDao(boolean isUsingCharacterIndex)
+	throws Exception {
+		DictionaryDaoImpl dao = new DictionaryDaoImpl();
+		dao.setUsingCharacterIndex(isUsingCharacterIndex);
+		dao.setDataSource(dataSource);
+		dao.afterPropertiesSet();
+		return dao;
+	}
+
+	/**
+	 * Check that a batch query finds the same entries, in the same order,
+	 * as looking up each character with expectedDao.
+	 */
+	private void assertBatchMatches(
+			Map<String, EntryValue[]> batchResults,
+			DictionaryDaoImpl expectedDao,
+			boolean isContaining,
+			int maxResults) {
+		for (String character : characters) {
+			String pattern = isContaining ? "%" + character + "%" : character;
+			EntryValue[] expected =
+				expectedDao.findAllEntryValuesByTraditionalCharacter(
+						pattern,
+						maxResults);
+			EntryValue[] actual = batchResults.get(character);
+			if (expected.length == 0)
+			{
+				Assert.assertNull("entries for " + pattern, actual);
+			}else
+			{
+				Assert.assertArrayEquals(
+						"entries for " + pattern,
+						expected,
+						actual);
+			}
+		}
+	}
+
+	@Test
+	public void batchMatchesSingleLookups() throws Exception {
+		// SETUP
+		DictionaryDaoImpl dao = createDao(false);
+		String first = characters.get(0);
+
+		for (int maxResults : new int[] {2, 1000}) {
+			// EXEC
+			Map<String, EntryValue[]> traditionalResults =
+				dao.findAllEntryValuesByTraditionalCharacters(
+						characters,
+						maxResults);
+			Map<String, EntryValue[]> containingResults =
+				dao.findAllEntryValuesContainingCharacters(
+						characters,
+						maxResults);
+
+			// VERIFY
+			assertBatchMatches(traditionalResults, dao, false, maxResults);
+			assertBatchMatches(containingResults, dao, true, maxResults);
+			Assert.assertEquals(
+					"number of entries containing first character",
+					Math.min(maxResults, 16),
+					containingResults.get(first).length);
+		}
+	}
+
+	@Test
+	public void indexMatchesLikeScan() throws Exception {
+		// SETUP
+		DictionaryDaoImpl indexedDao = createDao(true);
+		DictionaryDaoImpl scanningDao = createDao(false);
+
+		for (int maxResults : new int[] {2, 1000}) {
+			// EXEC
+			Map<String, EntryValue[]> batchResults =
+				indexedDao.findAllEntryValuesContainingCharacters(
+						characters,
+						maxResults);
+			Map<String, EntryValue[]> singleResults =
+				new HashMap<String, EntryValue[]>();
+			for (String character : characters) {
+				EntryValue[] entries =
+					indexedDao.findAllEntryValuesByTraditionalCharacter(
+							"%" + character + "%",
+							maxResults);
+				if (entries.length > 0)
+				{
+					singleResults.put(character, entries);
+				}
+			}
+
+			// VERIFY
+			assertBatchMatches(batchResults, scanningDao, true, maxResults);
+			assertBatchMatches(singleResults, scanningDao, true, maxResults);
+		}
+	}
+
+	@Test
+	public void staleIndexIsRebuilt() throws Exception {
+		// SETUP
+		createDao(true);
+		String character = characters.get(5);
+		addEntry(character + "x", "yi1 x5");
+
+		// EXEC
+		DictionaryDaoImpl indexedDao = createDao(true);
+		EntryValue[] entries = 
+			indexedDao.findAllEntryValuesContainingCharacters(
+					Collections.singletonList(character),
+					1000).get(character);
+
+		// VERIFY
+		EntryValue lastEntry = entries[entries.length - 1];
+		Assert.assertEquals(
+				"new entry should match",
+				character + "x",
+				lastEntry.getTraditionalChars());
+	}
+
+	@Test
+	public void partialIndexIsRebuilt() throws Exception {
+		// SETUP
+		jdbcTemplate.execute(
+				"CREATE TABLE char_index (" +
+				"index_char VARCHAR(2) NOT NULL, " +
+				"character_id INTEGER NOT NULL)");
+		jdbcTemplate.execute(
+				"CREATE TABLE char_index_build (" +
+				"index_char VARCHAR(2) NOT NULL, " +
+				"character_id INTEGER NOT NULL)");
+
+		// EXEC
+		DictionaryDaoImpl indexedDao = createDao(true);
+		Map<String, EntryValue[]> results =
+			indexedDao.findAllEntryValuesContainingCharacters(
+					characters,
+					1000);
+
+		// VERIFY
+		assertBatchMatches(results, createDao(false), true, 1000);
+	}
+}
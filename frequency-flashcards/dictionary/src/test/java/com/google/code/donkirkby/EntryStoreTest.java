@@ -0,0 +1,68 @@
+package com.google.code.donkirkby;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EntryStoreTest {
+	private EntryStore store;
+
+	@Before
+	public void setUp() {
+		store = new EntryStore();
+		store.add(10, "中", "中", "zhōng", "within");
+		store.add(11, "中", "中", "zhòng", "to hit");
+		store.add(12, "國", "国", "guó", null);
+		store.trimToSize();
+	}
+
+	@Test
+	public void sharedStrings() throws Exception {
+		// EXEC
+		int index = store.add(13, "中國", "中国", "zhōng guó", "within");
+
+		// VERIFY
+		Assert.assertEquals("size", 4, store.size());
+		Assert.assertEquals("index", 3, index);
+		Assert.assertEquals("distinct strings", 11, store.getPoolSize());
+		Assert.assertSame(
+				"shared definition",
+				store.getDefinition(0),
+				store.getDefinition(3));
+		Assert.assertNull("null definition", store.getDefinition(2));
+	}
+
+	@Test
+	public void view() throws Exception {
+		// EXEC
+		EntryValue entry = store.createEntry(1);
+
+		// VERIFY
+		Assert.assertEquals("id", 11, entry.getId());
+		Assert.assertEquals("traditional", "中", entry.getTraditionalChars());
+		Assert.assertEquals("simplified", "中", entry.getSimplifiedChars());
+		Assert.assertEquals("pinyin", "zhòng", entry.getPinyin());
+		Assert.assertEquals("definition", "to hit", entry.getDefinition());
+		Assert.assertEquals("copy", entry, entry.copy());
+	}
+
+	@Test
+	public void changeView() throws Exception {
+		// SETUP
+		EntryValue entry = store.createEntry(2);
+		EntryValue other = store.createEntry(2);
+
+		// EXEC
+		entry.setRank(5);
+		entry.setDefinition("country");
+
+		// VERIFY
+		Assert.assertEquals("definition", "country", entry.getDefinition());
+		Assert.assertEquals("pinyin", "guó", entry.getPinyin());
+		Assert.assertEquals("id", 12, entry.getId());
+		Assert.assertNull("other definition", other.getDefinition());
+		Assert.assertEquals("other rank", 0, other.getRank());
+		Assert.assertNull("stored definition", store.getDefinition(2));
+		Assert.assertFalse("equal", entry.equals(other));
+	}
+}
@@ -0,0 +1,103 @@
+package com.google.code.donkirkby;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+public class InMemoryDictionaryDaoTest {
+	private InMemoryDictionaryDao dao;
+
+	@Before
+	public void setUp() throws Exception {
+		String cedict =
+			"# comment line\n" +
+			"中 中 [zhong1] /within/among/\n" +
+			"中國 中国 [Zhong1 guo2] /China/\n" +
+			"國 国 [guo2] /country/\n" +
+			"中 中 [zhong4] /to hit/\n" +
+			"中中 中中 [zhong1 zhong1] /twice within/\n" +
+			"badly formatted line\n";
+		dao = new InMemoryDictionaryDao();
+		dao.setResource(new ByteArrayResource(cedict.getBytes("UTF-8")));
+	}
+
+	@Test
+	public void exact() throws Exception {
+		// EXEC
+		EntryValue[] entries =
+			dao.findAllEntryValuesByTraditionalCharacter("中", 10);
+
+		// VERIFY
+		Assert.assertEquals("entry count", 2, entries.length);
+		Assert.assertEquals("first pinyin", "zhōng", entries[0].getPinyin());
+		Assert.assertEquals(
+				"first definition",
+				"within; among",
+				entries[0].getDefinition());
+		Assert.assertEquals("second pinyin", "zhòng", entries[1].getPinyin());
+		Assert.assertEquals("second id", 5, entries[1].getId());
+	}
+
+	@Test
+	public void containing() throws Exception {
+		// EXEC
+		EntryValue[] entries =
+			dao.findAllEntryValuesByTraditionalCharacter("%國%", 10);
+		EntryValue[] limitedEntries =
+			dao.findAllEntryValuesByTraditionalCharacter("%中%", 3);
+
+		// VERIFY
+		Assert.assertEquals("entry count", 2, entries.length);
+		Assert.assertEquals("first entry", "中國", entries[0].getTraditionalChars());
+		Assert.assertEquals("second entry", "國", entries[1].getTraditionalChars());
+		Assert.assertEquals("limited count", 3, limitedEntries.length);
+		Assert.assertEquals(
+				"third limited entry",
+				"中",
+				limitedEntries[2].getTraditionalChars());
+	}
+
+	@Test
+	public void batches() throws Exception {
+		// EXEC
+		Map<String, EntryValue[]> exactResults =
+			dao.findAllEntryValuesByTraditionalCharacters(
+					Arrays.asList("國", "x"),
+					10);
+		Map<String, EntryValue[]> containingResults =
+			dao.findAllEntryValuesContainingCharacters(
+					Arrays.asList("中", "國", "x"),
+					10);
+
+		// VERIFY
+		Assert.assertEquals("exact keys", "[國]", exactResults.keySet().toString());
+		Assert.assertEquals("containing keys", 2, containingResults.size());
+		Assert.assertEquals(
+				"entries containing 中",
+				4,
+				containingResults.get("中").length);
+		Assert.assertEquals(
+				"entries containing 國",
+				2,
+				containingResults.get("國").length);
+	}
+
+	@Test
+	public void newEntriesEachTime() throws Exception {
+		// SETUP
+		EntryValue[] entries =
+			dao.findAllEntryValuesByTraditionalCharacter("國", 10);
+		entries[0].setRank(99);
+
+		// EXEC
+		EntryValue[] entries2 =
+			dao.findAllEntryValuesByTraditionalCharacter("國", 10);
+
+		// VERIFY
+		Assert.assertEquals("rank", 0, entries2[0].getRank());
+	}
+}
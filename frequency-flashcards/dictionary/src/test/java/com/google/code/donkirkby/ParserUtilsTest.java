@@ -33,4 +33,77 @@ public class ParserUtilsTest {
 				"nǐ hào",
 				pinyin);
 	}
+	
+	@Test
+	public void testSplitPinyin() throws Exception {
+		// SETUP
+		String rawPinyin = "Zhong1guo2, lu:e4 ma";
+		
+		// EXEC
+		String[] pinyin = ParserUtils.splitPinyin(rawPinyin, true);
+		
+		// VERIFY
+		Assert.assertArrayEquals(
+				"pinyin should match.",
+				new String[] {"Zhong1", "guo2", ", ", "lu:e4", " ", "ma5"},
+				pinyin);
+	}
+	
+	@Test
+	public void testSplitPinyinDropsOtherCharacters() throws Exception {
+		// SETUP
+		String rawPinyin = "dianr4 - hao3";
+		
+		// EXEC
+		String[] pinyin = ParserUtils.splitPinyin(rawPinyin, false);
+		
+		// VERIFY
+		Assert.assertArrayEquals(
+				"pinyin should match.",
+				new String[] {"dianr4", " ", "hao3", " "},
+				pinyin);
+	}
+	
+	@Test
+	public void testSplitPinyinRepeatedNeutralSyllables() throws Exception {
+		// EXEC
+		String[] repeated = ParserUtils.splitPinyin("ma ma", true);
+		String[] contained = ParserUtils.splitPinyin("wang wai4 ang5", true);
+		
+		// VERIFY
+		Assert.assertArrayEquals(
+				"repeated pinyin should match.",
+				new String[] {"ma5", " ", "ma5"},
+				repeated);
+		Assert.assertArrayEquals(
+				"contained pinyin should match.",
+				new String[] {"wang5", " ", "wai4", " ", "ang5"},
+				contained);
+	}
+	
+	@Test
+	public void testAddToneMarksTwice() throws Exception {
+		// SETUP
+		String rawPinyin = "Zhong1guo2 ren2";
+		
+		// EXEC
+		String pinyin1 = ParserUtils.addToneMarks(rawPinyin);
+		String pinyin2 = ParserUtils.addToneMarks(rawPinyin);
+		
+		// VERIFY
+		Assert.assertEquals("first pinyin should match.", "Zhōng guó rén", pinyin1);
+		Assert.assertEquals("second pinyin should match.", "Zhōng guó rén", pinyin2);
+	}
+	
+	@Test
+	public void testAddToneMarksOutsideTable() throws Exception {
+		// SETUP
+		String rawPinyin = "ni3, NI3!";
+		
+		// EXEC
+		String pinyin = ParserUtils.addToneMarks(rawPinyin);
+		
+		// VERIFY
+		Assert.assertEquals("pinyin should match.", "nǐ , NI3 !", pinyin);
+	}
 }
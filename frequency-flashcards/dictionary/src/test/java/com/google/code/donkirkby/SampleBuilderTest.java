@@ -129,6 +129,27 @@ public class SampleBuilderTest {
 				sampleEntries[0].getSample());
 	}
 	
+	@Test
+	public void testWordWithoutSyllable() throws Exception {
+		// SETUP
+		SampleBuilder builder = new SampleBuilder();
+		EntryValue[] characterEntries = createEntries("a", "a2");
+		EntryValue[] wordEntries = createEntries("ab", "a1 b1", "ca", "c1");
+		MockRankReader characterReader = new MockRankReader("a", "b", "c");
+		MockRankReader wordReader = new MockRankReader("ab", "ca");
+		builder.setRankFinder(createRankFinder(characterReader, wordReader));
+		
+		// EXEC
+		EntryValue[] sampleEntries = 
+			builder.build(characterEntries, wordEntries);
+		
+		// VERIFY
+		Assert.assertEquals(
+				"Sample should match",
+				wordEntries[1],
+				sampleEntries[0].getSample());
+	}
+	
 	@Test
 	public void testFilterWords() throws Exception {
 		// SETUP
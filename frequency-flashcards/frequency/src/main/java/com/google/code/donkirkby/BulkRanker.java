@@ -0,0 +1,226 @@
+package com.google.code.donkirkby;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * Ranks the characters of many small texts on several threads. The texts
+ * are split into chunks, each chunk is ranked into its own packed array,
+ * and the chunks are joined in input order, so the result doesn't depend
+ * on the thread count. All the texts are ranked against the same snapshot
+ * of the rank finder's index.
+ */
+public class BulkRanker {
+	private static final int DEFAULT_CHUNK_SIZE = 4096;
+
+	private RankFinder rankFinder;
+	private CharacterClassifier classifier = new CharacterClassifier();
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	/**
+	 * Rank each line of a UTF-8 text resource.
+	 * @param resource holds one text per line
+	 * @return the ranks of each line
+	 */
+	public PackedRanks rankLines(Resource resource) {
+		List<String> lines = new ArrayList<String>();
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					resource.getInputStream(),
+					"UTF-8"));
+			try
+			{
+				String line;
+				while ((line = reader.readLine()) != null)
+				{
+					lines.add(line);
+				}
+			}finally
+			{
+				reader.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(
+					"Failed to read " + resource.getDescription() + ".",
+					e);
+		}
+		return rank(lines);
+	}
+
+	/**
+	 * Rank each text in a list.
+	 * @param texts the texts to rank
+	 * @return the ranks of each text, in the same order
+	 */
+	public PackedRanks rank(List<? extends CharSequence> texts) {
+		RankIndex index = rankFinder.getIndex();
+		List<RankTask> tasks = new ArrayList<RankTask>();
+		for (int start = 0; start < texts.size(); start += chunkSize) {
+			int end = Math.min(start + chunkSize, texts.size());
+			tasks.add(new RankTask(texts.subList(start, end), index));
+		}
+		List<PackedRanks> chunks = runAll(tasks);
+		return join(chunks, texts.size());
+	}
+
+	private List<PackedRanks> runAll(List<RankTask> tasks) {
+		List<PackedRanks> chunks = new ArrayList<PackedRanks>();
+		if (threadCount <= 1 || tasks.size() <= 1)
+		{
+			for (RankTask task : tasks) {
+				chunks.add(task.call());
+			}
+			return chunks;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Math.min(threadCount, tasks.size()));
+		try
+		{
+			List<Future<PackedRanks>> futures = executor.invokeAll(tasks);
+			for (Future<PackedRanks> future : futures) {
+				chunks.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while ranking texts.", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Failed to rank texts.", e.getCause());
+		}finally
+		{
+			executor.shutdownNow();
+		}
+		return chunks;
+	}
+
+	private static PackedRanks join(List<PackedRanks> chunks, int textCount) {
+		int rankCount = 0;
+		for (PackedRanks chunk : chunks) {
+			rankCount += chunk.getRanks().length;
+		}
+		int[] ranks = new int[rankCount];
+		int[] offsets = new int[textCount + 1];
+		int[] maxRanks = new int[textCount];
+		int[] unknownCounts = new int[textCount];
+		int rankPosition = 0;
+		int textPosition = 0;
+		for (PackedRanks chunk : chunks) {
+			int[] chunkRanks = chunk.getRanks();
+			System.arraycopy(
+					chunkRanks, 
+					0, 
+					ranks, 
+					rankPosition, 
+					chunkRanks.length);
+			for (int i = 0; i < chunk.getTextCount(); i++) {
+				offsets[textPosition] = rankPosition + chunk.getOffset(i);
+				maxRanks[textPosition] = chunk.getMaxRank(i);
+				unknownCounts[textPosition] = chunk.getUnknownCount(i);
+				textPosition++;
+			}
+			rankPosition += chunkRanks.length;
+		}
+		offsets[textCount] = rankPosition;
+		return new PackedRanks(ranks, offsets, maxRanks, unknownCounts);
+	}
+
+	private class RankTask implements Callable<PackedRanks> {
+		private List<? extends CharSequence> texts;
+		private RankIndex index;
+
+		public RankTask(List<? extends CharSequence> texts, RankIndex index) {
+			this.texts = texts;
+			this.index = index;
+		}
+
+		public PackedRanks call() {
+			int textCount = texts.size();
+			int[] offsets = new int[textCount + 1];
+			for (int i = 0; i < textCount; i++) {
+				offsets[i + 1] = offsets[i] + texts.get(i).length();
+			}
+			int[] ranks = new int[offsets[textCount]];
+			int[] maxRanks = new int[textCount];
+			int[] unknownCounts = new int[textCount];
+			int unknownRank = index.getMaxCharacters() + 1;
+			for (int i = 0; i < textCount; i++) {
+				index.fillRanks(texts.get(i), classifier, ranks, offsets[i]);
+				int maxRank = 0;
+				int unknownCount = 0;
+				for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+					int rank = ranks[j];
+					if (rank > maxRank)
+					{
+						maxRank = rank;
+					}
+					if (rank >= unknownRank)
+					{
+						unknownCount++;
+					}
+				}
+				maxRanks[i] = maxRank;
+				unknownCounts[i] = unknownCount;
+			}
+			return new PackedRanks(ranks, offsets, maxRanks, unknownCounts);
+		}
+	}
+
+	public RankFinder getRankFinder() {
+		return rankFinder;
+	}
+
+	public void setRankFinder(RankFinder rankFinder) {
+		this.rankFinder = rankFinder;
+	}
+
+	public CharacterClassifier getClassifier() {
+		return classifier;
+	}
+
+	/**
+	 * Sets which characters get ranked. Defaults to a CharacterClassifier
+	 * with its default blocks.
+	 */
+	public void setClassifier(CharacterClassifier classifier) {
+		this.classifier = classifier;
+	}
+
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+	/**
+	 * Sets how many threads rank the texts. Defaults to the number of
+	 * processors.
+	 */
+	public void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Sets how many texts each task ranks. Defaults to 4096.
+	 * @param chunkSize at least one
+	 */
+	public void setChunkSize(int chunkSize) {
+		if (chunkSize < 1)
+		{
+			throw new IllegalArgumentException(
+					"Chunk size must be at least 1, but was " + chunkSize + ".");
+		}
+		this.chunkSize = chunkSize;
+	}
+}
@@ -1,36 +1,120 @@
 package com.google.code.donkirkby;
 
 import java.lang.Character.UnicodeBlock;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
+/**
+ * Classifies characters by their Unicode block. Each block set is turned
+ * into a bit table once, so classifying a character is a single array
+ * lookup. The tables cover the basic multilingual plane and the two planes
+ * after it, which hold CJK Extension B. Anything beyond that falls back to
+ * UnicodeBlock.of().
+ */
 public class CharacterClassifier {
+	/** Covers planes 0 to 2. */
+	private static final int TABLE_SIZE = 0x30000;
+
+	private static final Set<UnicodeBlock> DEFAULT_CHINESE_BLOCKS =
+		createBlockSet(
+				UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS,
+				UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_A,
+				UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_B);
+//		Other candidates:
+//			UnicodeBlock.CJK_COMPATIBILITY
+//			UnicodeBlock.CJK_COMPATIBILITY_FORMS
+//			UnicodeBlock.CJK_COMPATIBILITY_IDEOGRAPHS
+//			UnicodeBlock.CJK_COMPATIBILITY_IDEOGRAPHS_SUPPLEMENT
+//			UnicodeBlock.CJK_RADICALS_SUPPLEMENT
+//			UnicodeBlock.CJK_SYMBOLS_AND_PUNCTUATION
+//			UnicodeBlock.KANGXI_RADICALS
+//			UnicodeBlock.IDEOGRAPHIC_DESCRIPTION_CHARACTERS
+	private static final Set<UnicodeBlock> DEFAULT_JAPANESE_BLOCKS =
+		createBlockSet(UnicodeBlock.KATAKANA, UnicodeBlock.HIRAGANA);
+
+	private static final long[] DEFAULT_CHINESE_TABLE =
+		buildTable(DEFAULT_CHINESE_BLOCKS);
+	private static final long[] DEFAULT_JAPANESE_TABLE =
+		buildTable(DEFAULT_JAPANESE_BLOCKS);
+
+	private Set<UnicodeBlock> chineseBlocks = DEFAULT_CHINESE_BLOCKS;
+	private long[] chineseTable = DEFAULT_CHINESE_TABLE;
+	private Set<UnicodeBlock> japaneseBlocks = DEFAULT_JAPANESE_BLOCKS;
+	private long[] japaneseTable = DEFAULT_JAPANESE_TABLE;
+
+	private static Set<UnicodeBlock> createBlockSet(UnicodeBlock... blocks) {
+		return Collections.unmodifiableSet(
+				new HashSet<UnicodeBlock>(Arrays.asList(blocks)));
+	}
+
+	private static long[] buildTable(Set<UnicodeBlock> blocks) {
+		long[] table = new long[TABLE_SIZE >> 6];
+		for (int codePoint = 0; codePoint < TABLE_SIZE; codePoint++) {
+			if (blocks.contains(UnicodeBlock.of(codePoint)))
+			{
+				table[codePoint >> 6] |= 1L << codePoint;
+			}
+		}
+		return table;
+	}
+
+	private static boolean isInTable(
+			int codePoint,
+			long[] table,
+			Set<UnicodeBlock> blocks) {
+		if (0 <= codePoint && codePoint < TABLE_SIZE)
+		{
+			return (table[codePoint >> 6] & (1L << codePoint)) != 0;
+		}
+		return Character.isValidCodePoint(codePoint)
+			&& blocks.contains(UnicodeBlock.of(codePoint));
+	}
 
 	public boolean isChinese(char c) {
-		Set<UnicodeBlock> chineseUnicodeBlocks = new HashSet<UnicodeBlock>();
-		chineseUnicodeBlocks.add(UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS);
-//			add(UnicodeBlock.CJK_COMPATIBILITY);
-//			add(UnicodeBlock.CJK_COMPATIBILITY_FORMS);
-//			add(UnicodeBlock.CJK_COMPATIBILITY_IDEOGRAPHS);
-//			add(UnicodeBlock.CJK_COMPATIBILITY_IDEOGRAPHS_SUPPLEMENT);
-//			add(UnicodeBlock.CJK_RADICALS_SUPPLEMENT);
-//			add(UnicodeBlock.CJK_SYMBOLS_AND_PUNCTUATION);
-//			add(UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS);
-//			add(UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_A);
-//			add(UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_B);
-//			add(UnicodeBlock.KANGXI_RADICALS);
-//			add(UnicodeBlock.IDEOGRAPHIC_DESCRIPTION_CHARACTERS);
-		
-		UnicodeBlock block = UnicodeBlock.of(c);
-		return chineseUnicodeBlocks.contains(block);
-	}
-	
+		return (chineseTable[c >> 6] & (1L << c)) != 0;
+	}
+
+	public boolean isChinese(int codePoint) {
+		return isInTable(codePoint, chineseTable, chineseBlocks);
+	}
+
 	public boolean isJapanese(char c) {
-		Set<UnicodeBlock> japaneseUnicodeBlocks = new HashSet<UnicodeBlock>();
-		japaneseUnicodeBlocks.add(UnicodeBlock.KATAKANA);
-		japaneseUnicodeBlocks.add(UnicodeBlock.HIRAGANA);
-		
-		UnicodeBlock block = UnicodeBlock.of(c);
-		return japaneseUnicodeBlocks.contains(block);
+		return (japaneseTable[c >> 6] & (1L << c)) != 0;
+	}
+
+	public boolean isJapanese(int codePoint) {
+		return isInTable(codePoint, japaneseTable, japaneseBlocks);
+	}
+
+	public Set<UnicodeBlock> getChineseBlocks() {
+		return chineseBlocks;
+	}
+
+	/**
+	 * Sets which Unicode blocks count as Chinese characters. Defaults to
+	 * the CJK unified ideographs and extensions A and B.
+	 * @param chineseBlocks the blocks to include
+	 */
+	public void setChineseBlocks(Set<UnicodeBlock> chineseBlocks) {
+		this.chineseBlocks = createBlockSet(
+				chineseBlocks.toArray(new UnicodeBlock[chineseBlocks.size()]));
+		this.chineseTable = buildTable(this.chineseBlocks);
+	}
+
+	public Set<UnicodeBlock> getJapaneseBlocks() {
+		return japaneseBlocks;
+	}
+
+	/**
+	 * Sets which Unicode blocks count as Japanese characters. Defaults to
+	 * katakana and hiragana.
+	 * @param japaneseBlocks the blocks to include
+	 */
+	public void setJapaneseBlocks(Set<UnicodeBlock> japaneseBlocks) {
+		this.japaneseBlocks = createBlockSet(
+				japaneseBlocks.toArray(new UnicodeBlock[japaneseBlocks.size()]));
+		this.japaneseTable = buildTable(this.japaneseBlocks);
 	}
 }
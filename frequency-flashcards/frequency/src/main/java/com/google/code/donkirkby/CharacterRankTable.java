@@ -0,0 +1,75 @@
+package com.google.code.donkirkby;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps code points to ranks without boxing or allocating on lookup. The CJK
+ * ideograph ranges are held in a dense array, and anything else falls back
+ * to a small map.
+ */
+public class CharacterRankTable {
+	/** Start of CJK Unified Ideographs Extension A. */
+	private static final int DENSE_START = 0x3400;
+	/** End of CJK Unified Ideographs, exclusive. */
+	private static final int DENSE_END = 0xA000;
+
+	private int[] denseRanks = new int[DENSE_END - DENSE_START];
+	private Map<Integer, Integer> otherRanks = new HashMap<Integer, Integer>();
+	private int size;
+
+	/**
+	 * Record the rank of a code point, replacing any earlier rank.
+	 * @param codePoint the character to rank
+	 * @param rank a positive rank
+	 */
+	public void put(int codePoint, int rank) {
+		if (rank <= 0)
+		{
+			throw new IllegalArgumentException(
+					"Rank must be positive, but was " + rank + ".");
+		}
+		if (DENSE_START <= codePoint && codePoint < DENSE_END)
+		{
+			int index = codePoint - DENSE_START;
+			if (denseRanks[index] == 0)
+			{
+				size++;
+			}
+			denseRanks[index] = rank;
+		}
+		else if (otherRanks.put(codePoint, rank) == null)
+		{
+			size++;
+		}
+	}
+
+	/**
+	 * Look up the rank of a code point.
+	 * @param codePoint the character to look up
+	 * @return the rank, or 0 if the code point has no rank.
+	 */
+	public int get(int codePoint) {
+		if (DENSE_START <= codePoint && codePoint < DENSE_END)
+		{
+			return denseRanks[codePoint - DENSE_START];
+		}
+		if (otherRanks.isEmpty())
+		{
+			return 0;
+		}
+		Integer rank = otherRanks.get(codePoint);
+		return rank != null ? rank : 0;
+	}
+
+	public boolean contains(int codePoint) {
+		return get(codePoint) != 0;
+	}
+
+	/**
+	 * @return the number of code points that have a rank.
+	 */
+	public int size() {
+		return size;
+	}
+}
@@ -0,0 +1,389 @@
+package com.google.code.donkirkby;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * Counts how often characters and words appear in UTF-8 text files, and
+ * writes frequency lists that DefaultRankReader can read with no header
+ * lines. Only runs of Chinese characters are counted, so the markup in a
+ * CSV or XML file is ignored. Words are every sequence of two to
+ * maxWordLength characters within a run.
+ *
+ * One thread reads lines and hands them out in batches to the counting
+ * threads. Each counting thread has its own NgramCounter for characters
+ * and for words, and they are merged at the end, so memory stays bounded
+ * no matter how big the input is.
+ *
+ * Arguments: character output file, word output file, input files.
+ */
+public class CorpusCounter {
+	private static Log log = LogFactory.getLog(CorpusCounter.class);
+
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+	private int maxWordLength = 4;
+	private int maxKeys = 1 << 20;
+	private int sketchDepth = 4;
+	private int sketchWidth = 1 << 18;
+	private int batchSize = 1000;
+	private int maxItems = 100000;
+	private CharacterClassifier classifier = new CharacterClassifier();
+	private NgramCounter characterCounter;
+	private NgramCounter wordCounter;
+
+	public static void main(String[] args) {
+		if (args.length < 3)
+		{
+			System.err.println(
+					"Usage: CorpusCounter characterFile wordFile " +
+					"inputFile...");
+			System.exit(-1);
+		}
+		Resource[] inputs = new Resource[args.length - 2];
+		for (int i = 0; i < inputs.length; i++) {
+			inputs[i] = new FileSystemResource(args[i + 2]);
+		}
+		CorpusCounter counter = new CorpusCounter();
+		counter.count(inputs);
+		counter.writeCharacters(new File(args[0]));
+		counter.writeWords(new File(args[1]));
+	}
+
+	/**
+	 * Count all the characters and words in some text resources, replacing
+	 * any earlier counts.
+	 * @param inputs the UTF-8 text to count
+	 */
+	public void count(Resource... inputs) {
+		BlockingQueue<List<String>> queue = 
+			new ArrayBlockingQueue<List<String>>(threadCount * 4);
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try
+		{
+			List<Future<NgramCounter[]>> futures = 
+				new ArrayList<Future<NgramCounter[]>>();
+			for (int i = 0; i < threadCount; i++) {
+				futures.add(executor.submit(new CountTask(queue)));
+			}
+			long lineCount = 0;
+			for (Resource input : inputs) {
+				lineCount += readLines(input, queue, futures);
+			}
+			List<String> endOfInput = Collections.emptyList();
+			for (int i = 0; i < threadCount; i++) {
+				put(endOfInput, queue, futures);
+			}
+			characterCounter = null;
+			wordCounter = null;
+			for (Future<NgramCounter[]> future : futures) {
+				NgramCounter[] counters = future.get();
+				if (characterCounter == null)
+				{
+					characterCounter = counters[0];
+					wordCounter = counters[1];
+				}else
+				{
+					characterCounter.merge(counters[0]);
+					wordCounter.merge(counters[1]);
+				}
+			}
+			if (log.isInfoEnabled()) {
+				log.info(String.format(
+						"Counted %1$d lines, exact counts: %2$b.",
+						lineCount,
+						characterCounter.isExact() && wordCounter.isExact()));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while counting.", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Failed to count.", e.getCause());
+		}finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	private long readLines(
+			Resource input, 
+			BlockingQueue<List<String>> queue,
+			List<Future<NgramCounter[]>> futures) 
+	throws InterruptedException, ExecutionException {
+		long lineCount = 0;
+		try {
+			BufferedReader reader = new BufferedReader(
+					new InputStreamReader(input.getInputStream(), "UTF-8"),
+					64 * 1024);
+			try
+			{
+				List<String> batch = new ArrayList<String>(batchSize);
+				String line;
+				while ((line = reader.readLine()) != null)
+				{
+					lineCount++;
+					batch.add(line);
+					if (batch.size() >= batchSize)
+					{
+						put(batch, queue, futures);
+						batch = new ArrayList<String>(batchSize);
+					}
+				}
+				if ( ! batch.isEmpty())
+				{
+					put(batch, queue, futures);
+				}
+			}finally
+			{
+				reader.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(
+					"Failed to read " + input.getDescription() + ".",
+					e);
+		}
+		return lineCount;
+	}
+
+	/**
+	 * Wait for room in the queue, but stop if a counting thread has failed,
+	 * because then nobody might be taking batches off the queue.
+	 */
+	private static void put(
+			List<String> batch,
+			BlockingQueue<List<String>> queue,
+			List<Future<NgramCounter[]>> futures) 
+	throws InterruptedException, ExecutionException {
+		while ( ! queue.offer(batch, 100, TimeUnit.MILLISECONDS))
+		{
+			for (Future<NgramCounter[]> future : futures) {
+				if (future.isDone())
+				{
+					future.get();
+				}
+			}
+		}
+	}
+
+	private class CountTask implements Callable<NgramCounter[]> {
+		private BlockingQueue<List<String>> queue;
+
+		public CountTask(BlockingQueue<List<String>> queue) {
+			this.queue = queue;
+		}
+
+		public NgramCounter[] call() throws InterruptedException {
+			NgramCounter characters = 
+				new NgramCounter(maxKeys, sketchDepth, sketchWidth);
+			NgramCounter words = 
+				new NgramCounter(maxKeys, sketchDepth, sketchWidth);
+			List<String> batch;
+			while ( ! (batch = queue.take()).isEmpty())
+			{
+				for (String line : batch) {
+					countLine(line, characters, words);
+				}
+			}
+			return new NgramCounter[] {characters, words};
+		}
+	}
+
+	private void countLine(
+			String line, 
+			NgramCounter characters, 
+			NgramCounter words) {
+		int runStart = -1;
+		int length = line.length();
+		for (int i = 0; i < length; ) {
+			int codePoint = line.codePointAt(i);
+			if ( ! classifier.isChinese(codePoint))
+			{
+				if (runStart >= 0)
+				{
+					countRun(line, runStart, i, characters, words);
+					runStart = -1;
+				}
+			}else if (runStart < 0)
+			{
+				runStart = i;
+			}
+			i += Character.charCount(codePoint);
+		}
+		if (runStart >= 0)
+		{
+			countRun(line, runStart, length, characters, words);
+		}
+	}
+
+	private void countRun(
+			String text, 
+			int start, 
+			int end, 
+			NgramCounter characters, 
+			NgramCounter words) {
+		for (int i = start; i < end; ) {
+			int wordEnd = i;
+			for (int n = 1; n <= maxWordLength && wordEnd < end; n++) {
+				wordEnd += Character.charCount(text.codePointAt(wordEnd));
+				if (n == 1)
+				{
+					characters.add(text, i, wordEnd);
+				}else
+				{
+					words.add(text, i, wordEnd);
+				}
+			}
+			i += Character.charCount(text.codePointAt(i));
+		}
+	}
+
+	public void writeCharacters(File file) {
+		write(characterCounter, file);
+	}
+
+	public void writeWords(File file) {
+		write(wordCounter, file);
+	}
+
+	/**
+	 * Write the most frequent items, one per line with a tab before its
+	 * count.
+	 */
+	private void write(NgramCounter counter, File file) {
+		if (counter == null)
+		{
+			throw new IllegalStateException("Nothing has been counted.");
+		}
+		try {
+			PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+					new FileOutputStream(file),
+					"UTF-8"));
+			try
+			{
+				for (String item : counter.findTop(maxItems)) {
+					writer.println(item + "\t" + counter.getCount(item));
+				}
+			}finally
+			{
+				writer.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(
+					"Failed to write " + file + ".",
+					e);
+		}
+	}
+
+	public NgramCounter getCharacterCounter() {
+		return characterCounter;
+	}
+
+	public NgramCounter getWordCounter() {
+		return wordCounter;
+	}
+
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+	/**
+	 * Sets how many threads count the text. Defaults to the number of
+	 * processors.
+	 */
+	public void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	public int getMaxWordLength() {
+		return maxWordLength;
+	}
+
+	/**
+	 * Sets the longest word to count, in characters. Defaults to 4.
+	 */
+	public void setMaxWordLength(int maxWordLength) {
+		this.maxWordLength = maxWordLength;
+	}
+
+	public int getMaxKeys() {
+		return maxKeys;
+	}
+
+	/**
+	 * Sets how many strings each thread's tables can hold before they drop
+	 * the less frequent ones. Defaults to about a million.
+	 */
+	public void setMaxKeys(int maxKeys) {
+		this.maxKeys = maxKeys;
+	}
+
+	public int getSketchDepth() {
+		return sketchDepth;
+	}
+
+	public void setSketchDepth(int sketchDepth) {
+		this.sketchDepth = sketchDepth;
+	}
+
+	public int getSketchWidth() {
+		return sketchWidth;
+	}
+
+	/**
+	 * Sets the width of the count-min sketches, which must be a power of 
+	 * two.
+	 */
+	public void setSketchWidth(int sketchWidth) {
+		this.sketchWidth = sketchWidth;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Sets how many lines are handed to a counting thread at once.
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public int getMaxItems() {
+		return maxItems;
+	}
+
+	/**
+	 * Sets how many characters or words to write. Defaults to 100000.
+	 */
+	public void setMaxItems(int maxItems) {
+		this.maxItems = maxItems;
+	}
+
+	public CharacterClassifier getClassifier() {
+		return classifier;
+	}
+
+	public void setClassifier(CharacterClassifier classifier) {
+		this.classifier = classifier;
+	}
+}
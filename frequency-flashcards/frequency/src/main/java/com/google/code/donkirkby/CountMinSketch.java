@@ -0,0 +1,111 @@
+package com.google.code.donkirkby;
+
+/**
+ * Estimates how often strings have been seen in a fixed amount of memory.
+ * An estimate is never too low, and it is only too high when other strings
+ * collide with it in every row. Increments use conservative update, which
+ * only raises the rows that hold the current minimum. Sketches with the
+ * same size can be merged by adding their cells.
+ *
+ * A sketch is not thread-safe, so give each thread its own and merge them
+ * at the end.
+ */
+public class CountMinSketch {
+	private final int depth;
+	private final int mask;
+	private final long[] cells;
+	private final int[] cellIndexes;
+
+	/**
+	 * @param depth how many rows, each with its own hash
+	 * @param width how many cells in each row, must be a power of two
+	 */
+	public CountMinSketch(int depth, int width) {
+		if (width <= 0 || (width & (width - 1)) != 0)
+		{
+			throw new IllegalArgumentException(
+					"Width must be a power of two, but was " + width + ".");
+		}
+		this.depth = depth;
+		this.mask = width - 1;
+		this.cells = new long[depth * width];
+		this.cellIndexes = new int[depth];
+	}
+
+	private static int mix(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+
+	/**
+	 * Find the cell for each row, using two hashes of the key combined
+	 * differently for each row.
+	 */
+	private void findCells(CharSequence text, int start, int end) {
+		int hash1 = 0;
+		int hash2 = 0x811c9dc5;
+		for (int i = start; i < end; i++) {
+			char c = text.charAt(i);
+			hash1 = 31 * hash1 + c;
+			hash2 = (hash2 ^ c) * 0x01000193;
+		}
+		hash2 = mix(hash2) | 1;
+		int width = mask + 1;
+		for (int row = 0; row < depth; row++) {
+			cellIndexes[row] = 
+				row * width + (mix(hash1 + row * hash2) & mask);
+		}
+	}
+
+	/**
+	 * Count one more occurrence of part of some text.
+	 * @return the new estimate
+	 */
+	public long add(CharSequence text, int start, int end) {
+		findCells(text, start, end);
+		long estimate = Long.MAX_VALUE;
+		for (int cellIndex : cellIndexes) {
+			estimate = Math.min(estimate, cells[cellIndex]);
+		}
+		estimate++;
+		for (int cellIndex : cellIndexes) {
+			if (cells[cellIndex] < estimate)
+			{
+				cells[cellIndex] = estimate;
+			}
+		}
+		return estimate;
+	}
+
+	public long estimate(CharSequence text, int start, int end) {
+		findCells(text, start, end);
+		long estimate = Long.MAX_VALUE;
+		for (int cellIndex : cellIndexes) {
+			estimate = Math.min(estimate, cells[cellIndex]);
+		}
+		return estimate;
+	}
+
+	public long estimate(String key) {
+		return estimate(key, 0, key.length());
+	}
+
+	/**
+	 * Add another sketch's counts to this one.
+	 * @param other a sketch with the same depth and width
+	 */
+	public void merge(CountMinSketch other) {
+		if (other.depth != depth || other.mask != mask)
+		{
+			throw new IllegalArgumentException(
+					"Can't merge sketches with different sizes.");
+		}
+		for (int i = 0; i < cells.length; i++) {
+			cells[i] += other.cells[i];
+		}
+	}
+}
@@ -2,45 +2,23 @@ package com.google.code.donkirkby;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.util.NoSuchElementException;
-import java.util.Scanner;
-import java.util.regex.Pattern;
 
 import org.springframework.core.io.Resource;
 
 public class DefaultRankReader implements RankReader {
+	private static final Charset UTF8 = Charset.forName("utf8");
+	
 	private Resource resource;
-	private Scanner scanner;
+	private TextTokenizer tokenizer;
 	private int headerLineCount;
 	private int linesToSkip;
 	private String nextItem;
-	private Pattern tokenPattern;
-	private Pattern delimiterPattern;
 	private boolean isParsingTokens = true;
 	private boolean isOnePerLine = true;
 	private int minTokenLength = 1;
 	
-	public DefaultRankReader() {
-		setPattern();
-	}
-
-	private void setPattern() {
-		if (isParsingTokens)
-		{
-			tokenPattern = Pattern.compile("\\S+");
-			delimiterPattern = Pattern.compile("\\s+");
-		}else
-		{
-			tokenPattern = Pattern.compile("\\S");
-			delimiterPattern = Pattern.compile("\\s*");
-		}
-		if (scanner != null)
-		{
-			scanner.useDelimiter(delimiterPattern);
-		}
-	}
-	
 	/* (non-Javadoc)
 	 * @see com.google.code.donkirkby.RankReader#nextItem()
 	 */
@@ -54,32 +32,50 @@ public class DefaultRankReader implements RankReader {
 		return currentItem;
 	}
 
+	/* (non-Javadoc)
+	 * @see com.google.code.donkirkby.RankReader#nextItems(int, String[])
+	 */
+	public int nextItems(int maxCount, String[] items) {
+		int count = 0;
+		while (count < maxCount && nextItem != null)
+		{
+			items[count++] = nextItem;
+			prepareNextItem();
+		}
+		return count;
+	}
+
 	private void prepareNextItem() {
-		nextItem = null;
-		boolean isAtFileEnd = false;
-		do {
-			while(linesToSkip > 0 && scanner.hasNextLine())
-			{
-				scanner.nextLine();
-				linesToSkip--;
-			}
-			if (scanner.hasNext(tokenPattern))
-			{
-				nextItem = scanner.next(tokenPattern);
-				if (nextItem.length() < minTokenLength)
+		try {
+			nextItem = null;
+			boolean isAtFileEnd = false;
+			do {
+				while(linesToSkip > 0 && tokenizer.skipLine())
+				{
+					linesToSkip--;
+				}
+				nextItem = 
+					isParsingTokens
+					? tokenizer.nextToken()
+					: tokenizer.nextCharacter();
+				if (nextItem != null && nextItem.length() < minTokenLength)
 				{
 					nextItem = null;
 				}
-			}
-			
-			if (isOnePerLine) {
-				linesToSkip = 1;
-				isAtFileEnd = !scanner.hasNextLine();
-			}else
-			{
-				isAtFileEnd = !scanner.hasNext(tokenPattern);
-			}
-		}while (nextItem == null && !isAtFileEnd);
+				
+				if (isOnePerLine) {
+					linesToSkip = 1;
+					isAtFileEnd = !tokenizer.hasMoreInput();
+				}else
+				{
+					isAtFileEnd = !tokenizer.skipWhitespace();
+				}
+			}while (nextItem == null && !isAtFileEnd);
+		} catch (IOException e) {
+			throw new RuntimeException(
+					"Failed to read frequency resource.", 
+					e);
+		}
 	}
 	
 	/* (non-Javadoc)
@@ -89,10 +85,7 @@ public class DefaultRankReader implements RankReader {
 	{
 		try {
 			InputStream inputStream = resource.getInputStream();
-			InputStreamReader reader = 
-				new InputStreamReader(inputStream, "utf8");
-			scanner = new Scanner(reader);
-			scanner.useDelimiter(delimiterPattern);
+			tokenizer = new TextTokenizer(inputStream, UTF8);
 			linesToSkip = headerLineCount;
 			prepareNextItem();
 		} catch (IOException e) {
@@ -106,9 +99,16 @@ public class DefaultRankReader implements RankReader {
 	 * @see com.google.code.donkirkby.RankReader#close()
 	 */
 	public void close() {
-		if (scanner != null) {
-			scanner.close();
-			scanner = null;
+		if (tokenizer != null) {
+			try {
+				tokenizer.close();
+			} catch (IOException e) {
+				throw new RuntimeException(
+						"Failed to close frequency resource.", 
+						e);
+			} finally {
+				tokenizer = null;
+			}
 		}
 	}
 
@@ -145,7 +145,6 @@ public class DefaultRankReader implements RankReader {
 	 */
 	public void setParsingTokens(boolean isParsingTokens) {
 		this.isParsingTokens = isParsingTokens;
-		setPattern();
 	}
 
 	public boolean isOnePerLine() {
@@ -0,0 +1,225 @@
+package com.google.code.donkirkby;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * A compiled copy of the character and word frequency lists. The file is
+ * memory-mapped when possible, so loading it doesn't parse anything and
+ * several processes can share the same pages.
+ *
+ * The layout is a magic number, a format version, the character count and
+ * one code point per character in rank order, then the word count, an
+ * offset for each word plus one for the end, and the words' UTF-16 chars.
+ * All numbers are big-endian.
+ */
+public class FrequencyIndex {
+	public static final int MAGIC = 0x46524958; // "FRIX"
+	public static final int FORMAT_VERSION = 1;
+	private static final int INT_SIZE = 4;
+	private static final int CHAR_SIZE = 2;
+
+	private ByteBuffer buffer;
+	private int characterCount;
+	private int charactersStart;
+	private int wordCount;
+	private int wordOffsetsStart;
+	private int wordCharsStart;
+
+	private FrequencyIndex(ByteBuffer buffer) {
+		this.buffer = buffer;
+		int position = 0;
+		int magic = buffer.getInt(position);
+		int version = buffer.getInt(position + INT_SIZE);
+		if (magic != MAGIC)
+		{
+			throw new IllegalArgumentException(
+					"Not a frequency index.");
+		}
+		if (version != FORMAT_VERSION)
+		{
+			throw new IllegalArgumentException(String.format(
+					"Frequency index has version %1$d, expected %2$d. " +
+					"Rebuild the frequency module.",
+					version,
+					FORMAT_VERSION));
+		}
+		position += 2 * INT_SIZE;
+		characterCount = buffer.getInt(position);
+		position += INT_SIZE;
+		charactersStart = position;
+		position += characterCount * INT_SIZE;
+		wordCount = buffer.getInt(position);
+		position += INT_SIZE;
+		wordOffsetsStart = position;
+		position += (wordCount + 1) * INT_SIZE;
+		wordCharsStart = position;
+	}
+
+	/**
+	 * Load an index, memory-mapping it if the resource is a file.
+	 * @param resource holds the compiled index
+	 * @return the loaded index
+	 */
+	public static FrequencyIndex load(Resource resource) {
+		try {
+			File file;
+			try {
+				file = resource.getFile();
+			} catch (IOException e) {
+				// Not in the file system, probably in a jar.
+				file = null;
+			}
+			if (file != null)
+			{
+				RandomAccessFile randomAccessFile =
+					new RandomAccessFile(file, "r");
+				try
+				{
+					FileChannel channel = randomAccessFile.getChannel();
+					return new FrequencyIndex(channel.map(
+							FileChannel.MapMode.READ_ONLY,
+							0,
+							channel.size()));
+				}finally
+				{
+					// The mapping stays valid after the file is closed.
+					randomAccessFile.close();
+				}
+			}
+			InputStream inputStream = resource.getInputStream();
+			try
+			{
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				byte[] block = new byte[64 * 1024];
+				int count;
+				while ((count = inputStream.read(block)) >= 0)
+				{
+					bytes.write(block, 0, count);
+				}
+				return new FrequencyIndex(ByteBuffer.wrap(bytes.toByteArray()));
+			}finally
+			{
+				inputStream.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(
+					"Failed to load frequency index " +
+					resource.getDescription() + ".",
+					e);
+		}
+	}
+
+	/**
+	 * Compile the frequency lists into an index file.
+	 * @param characterReader reads characters in rank order, each item must
+	 * be a single code point.
+	 * @param wordReader reads words in rank order
+	 * @param file where to write the index
+	 */
+	public static void write(
+			RankReader characterReader,
+			RankReader wordReader,
+			File file) {
+		List<String> characters = readAll(characterReader);
+		List<String> words = readAll(wordReader);
+		try {
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(file)));
+			try
+			{
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeInt(characters.size());
+				for (String character : characters) {
+					int codePoint = character.codePointAt(0);
+					if (Character.charCount(codePoint) != character.length())
+					{
+						throw new IllegalArgumentException(
+								"Expected a single character, but found '" +
+								character + "'.");
+					}
+					out.writeInt(codePoint);
+				}
+				out.writeInt(words.size());
+				int offset = 0;
+				out.writeInt(offset);
+				for (String word : words) {
+					offset += word.length();
+					out.writeInt(offset);
+				}
+				for (String word : words) {
+					out.writeChars(word);
+				}
+			}finally
+			{
+				out.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(
+					"Failed to write frequency index " + file + ".",
+					e);
+		}
+	}
+
+	private static List<String> readAll(RankReader reader) {
+		List<String> items = new ArrayList<String>();
+		reader.open();
+		try
+		{
+			while (reader.hasNext())
+			{
+				items.add(reader.nextItem());
+			}
+		}finally
+		{
+			reader.close();
+		}
+		return items;
+	}
+
+	public int getCharacterCount() {
+		return characterCount;
+	}
+
+	/**
+	 * @param index the character's rank minus one
+	 * @return the character's code point
+	 */
+	public int getCharacter(int index) {
+		return buffer.getInt(charactersStart + index * INT_SIZE);
+	}
+
+	public int getWordCount() {
+		return wordCount;
+	}
+
+	/**
+	 * @param index the word's rank minus one
+	 * @return the word
+	 */
+	public String getWord(int index) {
+		int offsetPosition = wordOffsetsStart + index * INT_SIZE;
+		int start = buffer.getInt(offsetPosition);
+		int end = buffer.getInt(offsetPosition + INT_SIZE);
+		char[] chars = new char[end - start];
+		int position = wordCharsStart + start * CHAR_SIZE;
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = buffer.getChar(position);
+			position += CHAR_SIZE;
+		}
+		return new String(chars);
+	}
+}
@@ -0,0 +1,45 @@
+package com.google.code.donkirkby;
+
+import java.io.File;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.io.FileSystemResource;
+
+/**
+ * Compiles the frequency text files into a FrequencyIndex. The frequency
+ * module runs this during the build.
+ *
+ * Arguments: output file, character file, character header line count,
+ * word file, word header line count.
+ */
+public class FrequencyIndexCompiler {
+	private static Log log = LogFactory.getLog(FrequencyIndexCompiler.class);
+
+	public static void main(String[] args) {
+		if (args.length != 5)
+		{
+			System.err.println(
+					"Usage: FrequencyIndexCompiler outputFile " +
+					"characterFile characterHeaderLines " +
+					"wordFile wordHeaderLines");
+			System.exit(-1);
+		}
+		File outputFile = new File(args[0]);
+		DefaultRankReader characterReader = new DefaultRankReader();
+		characterReader.setResource(new FileSystemResource(args[1]));
+		characterReader.setHeaderLineCount(Integer.parseInt(args[2]));
+		DefaultRankReader wordReader = new DefaultRankReader();
+		wordReader.setResource(new FileSystemResource(args[3]));
+		wordReader.setHeaderLineCount(Integer.parseInt(args[4]));
+
+		File outputDirectory = outputFile.getAbsoluteFile().getParentFile();
+		if (!outputDirectory.exists() && !outputDirectory.mkdirs())
+		{
+			throw new RuntimeException(
+					"Failed to create directory " + outputDirectory + ".");
+		}
+		FrequencyIndex.write(characterReader, wordReader, outputFile);
+		log.info("Wrote frequency index to " + outputFile + ".");
+	}
+}
@@ -0,0 +1,113 @@
+package com.google.code.donkirkby;
+
+import java.util.NoSuchElementException;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * Reads characters or words from a compiled FrequencyIndex instead of
+ * parsing the text files. Once it's open, a reader can be split into
+ * readers for separate ranges of items that share the same index.
+ */
+public class IndexedRankReader implements RankReader {
+	private Resource resource;
+	private boolean isReadingWords;
+	private FrequencyIndex index;
+	/** The index after the last item this reader will read. */
+	private int itemCount;
+	private int nextIndex;
+
+	public void open() {
+		index = FrequencyIndex.load(resource);
+		itemCount =
+			isReadingWords
+			? index.getWordCount()
+			: index.getCharacterCount();
+		nextIndex = 0;
+	}
+
+	public boolean hasNext() {
+		return index != null && nextIndex < itemCount;
+	}
+
+	public String nextItem() {
+		if (!hasNext())
+		{
+			throw new NoSuchElementException();
+		}
+		int itemIndex = nextIndex++;
+		if (isReadingWords)
+		{
+			return index.getWord(itemIndex);
+		}
+		return new String(Character.toChars(index.getCharacter(itemIndex)));
+	}
+
+	public int nextItems(int maxCount, String[] items) {
+		int count = Math.min(maxCount, getRemainingCount());
+		for (int i = 0; i < count; i++) {
+			int itemIndex = nextIndex++;
+			items[i] = 
+				isReadingWords
+				? index.getWord(itemIndex)
+				: new String(Character.toChars(index.getCharacter(itemIndex)));
+		}
+		return count;
+	}
+
+	/**
+	 * @return how many items are left to read.
+	 */
+	public int getRemainingCount() {
+		return index == null ? 0 : itemCount - nextIndex;
+	}
+
+	/**
+	 * Split off the first half of the remaining items into a new reader,
+	 * the same way as Spliterator.trySplit(). The new reader is already open
+	 * and shares this reader's index, and this reader keeps the second
+	 * half. The two readers can be used on different threads.
+	 * @return the new reader, or null if there are fewer than two items 
+	 * left.
+	 */
+	public IndexedRankReader trySplit() {
+		int remainingCount = getRemainingCount();
+		if (remainingCount < 2)
+		{
+			return null;
+		}
+		int middle = nextIndex + remainingCount / 2;
+		IndexedRankReader prefix = new IndexedRankReader();
+		prefix.resource = resource;
+		prefix.isReadingWords = isReadingWords;
+		prefix.index = index;
+		prefix.nextIndex = nextIndex;
+		prefix.itemCount = middle;
+		nextIndex = middle;
+		return prefix;
+	}
+
+	public void close() {
+		index = null;
+	}
+
+	public Resource getResource() {
+		return resource;
+	}
+
+	public void setResource(Resource resource) {
+		this.resource = resource;
+	}
+
+	public boolean isReadingWords() {
+		return isReadingWords;
+	}
+
+	/** Sets whether the reader reads the index's words or its characters.
+	 * Defaults to false.
+	 * @param isReadingWords true if it should read words.
+	 */
+	public void setReadingWords(boolean isReadingWords) {
+		this.isReadingWords = isReadingWords;
+	}
+}
@@ -0,0 +1,137 @@
+package com.google.code.donkirkby;
+
+import java.util.Arrays;
+
+/**
+ * Counts strings in bounded memory, keeping exact counts for as long as
+ * the table has room. Every occurrence goes into a count-min sketch, and
+ * when the table holds more than maxKeys strings, the less frequent half
+ * is dropped. After that, a new string only gets into the table if its
+ * estimate is above the highest count dropped so far, and it starts with
+ * its estimate, so frequent strings are kept even if they were dropped
+ * earlier.
+ *
+ * Not thread-safe. Give each thread its own counter and merge them.
+ */
+public class NgramCounter {
+	private int maxKeys;
+	private StringCounter counter;
+	private CountMinSketch sketch;
+	private long pruneThreshold;
+	private boolean isExact = true;
+
+	/**
+	 * @param maxKeys how many strings the table can hold before it drops
+	 * the less frequent ones
+	 * @param sketchDepth how many rows in the sketch
+	 * @param sketchWidth how many cells in each row of the sketch, must be a
+	 * power of two
+	 */
+	public NgramCounter(int maxKeys, int sketchDepth, int sketchWidth) {
+		this.maxKeys = maxKeys;
+		counter = new StringCounter();
+		sketch = new CountMinSketch(sketchDepth, sketchWidth);
+	}
+
+	/**
+	 * Count one occurrence of part of some text.
+	 */
+	public void add(CharSequence text, int start, int end) {
+		long estimate = sketch.add(text, start, end);
+		if (counter.addExisting(text, start, end, 1) > 0)
+		{
+			return;
+		}
+		if (estimate > pruneThreshold)
+		{
+			counter.add(text, start, end, isExact ? 1 : estimate);
+			if (counter.size() > maxKeys)
+			{
+				prune();
+			}
+		}
+	}
+
+	/**
+	 * Drop the less frequent half of the table, even if some of the
+	 * strings that are kept have the same count as some that are dropped.
+	 */
+	private void prune() {
+		long removedCount = counter.removeLowest(counter.size() / 2);
+		pruneThreshold = Math.max(pruneThreshold, removedCount);
+		isExact = false;
+	}
+
+	/**
+	 * Add another counter's strings and sketch to this one. If the merged
+	 * table holds more than maxKeys strings, it is pruned until it fits.
+	 * @param other a counter with the same sketch size
+	 */
+	public void merge(NgramCounter other) {
+		sketch.merge(other.sketch);
+		pruneThreshold = Math.max(pruneThreshold, other.pruneThreshold);
+		isExact = isExact && other.isExact;
+		String[] otherKeys = other.counter.copyKeys();
+		long[] otherCounts = other.counter.copyCounts();
+		for (int i = 0; i < otherKeys.length; i++) {
+			counter.add(otherKeys[i], otherCounts[i]);
+		}
+		while (counter.size() > maxKeys)
+		{
+			prune();
+		}
+	}
+
+	/**
+	 * @return true if no strings have been dropped, so all counts are 
+	 * exact.
+	 */
+	public boolean isExact() {
+		return isExact;
+	}
+
+	/**
+	 * @return the exact count, or the sketch's estimate once strings have 
+	 * been dropped.
+	 */
+	public long getCount(String key) {
+		return isExact ? counter.get(key) : sketch.estimate(key);
+	}
+
+	/**
+	 * Find the most frequent strings, breaking ties alphabetically.
+	 * @param maxCount the most strings to return
+	 * @return the strings, most frequent first
+	 */
+	public String[] findTop(int maxCount) {
+		String[] keys = counter.copyKeys();
+		Entry[] entries = new Entry[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			entries[i] = new Entry(keys[i], getCount(keys[i]));
+		}
+		Arrays.sort(entries);
+		String[] top = new String[Math.min(maxCount, entries.length)];
+		for (int i = 0; i < top.length; i++) {
+			top[i] = entries[i].key;
+		}
+		return top;
+	}
+
+	private static class Entry implements Comparable<Entry> {
+		private String key;
+		private long count;
+
+		public Entry(String key, long count) {
+			this.key = key;
+			this.count = count;
+		}
+
+		public int compareTo(Entry o) {
+			if (count != o.count)
+			{
+				return count > o.count ? -1 : 1;
+			}
+			return key.compareTo(o.key);
+		}
+	}
+}
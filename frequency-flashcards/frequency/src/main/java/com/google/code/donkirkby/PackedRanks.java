@@ -0,0 +1,87 @@
+package com.google.code.donkirkby;
+
+/**
+ * The character ranks of many texts, packed into one array. Text i's ranks
+ * are at positions getOffset(i) to getOffset(i) + getLength(i) - 1, with
+ * the same layout as RankIndex.getRanks(). Each text also has a summary,
+ * so most filtering never needs to look at the individual ranks.
+ */
+public class PackedRanks {
+	private final int[] ranks;
+	private final int[] offsets;
+	private final int[] maxRanks;
+	private final int[] unknownCounts;
+
+	/**
+	 * @param ranks all the ranks, one text after another
+	 * @param offsets where each text starts, plus one entry for the end
+	 * @param maxRanks each text's highest rank
+	 * @param unknownCounts how many Chinese characters in each text have no
+	 * rank
+	 */
+	public PackedRanks(
+			int[] ranks, 
+			int[] offsets, 
+			int[] maxRanks, 
+			int[] unknownCounts) {
+		this.ranks = ranks;
+		this.offsets = offsets;
+		this.maxRanks = maxRanks;
+		this.unknownCounts = unknownCounts;
+	}
+
+	public int getTextCount() {
+		return maxRanks.length;
+	}
+
+	/**
+	 * @return the packed ranks of all the texts. This is not a copy, so
+	 * don't change it.
+	 */
+	public int[] getRanks() {
+		return ranks;
+	}
+
+	/**
+	 * Copy out one text's ranks.
+	 * @param textIndex the text's position in the input
+	 * @return a new array with the text's ranks
+	 */
+	public int[] getRanks(int textIndex) {
+		int[] textRanks = new int[getLength(textIndex)];
+		System.arraycopy(
+				ranks, 
+				offsets[textIndex], 
+				textRanks, 
+				0, 
+				textRanks.length);
+		return textRanks;
+	}
+
+	public int getOffset(int textIndex) {
+		return offsets[textIndex];
+	}
+
+	/**
+	 * @return the text's length in chars, which is also how many ranks it
+	 * has.
+	 */
+	public int getLength(int textIndex) {
+		return offsets[textIndex + 1] - offsets[textIndex];
+	}
+
+	/**
+	 * @return the text's highest character rank, or 0 if it has no Chinese
+	 * characters.
+	 */
+	public int getMaxRank(int textIndex) {
+		return maxRanks[textIndex];
+	}
+
+	/**
+	 * @return how many of the text's Chinese characters have no rank.
+	 */
+	public int getUnknownCount(int textIndex) {
+		return unknownCounts[textIndex];
+	}
+}
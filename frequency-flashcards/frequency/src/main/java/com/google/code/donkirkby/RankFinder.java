@@ -1,19 +1,26 @@
 package com.google.code.donkirkby;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+/**
+ * Looks up ranks in the current RankIndex. Queries read the index without
+ * locking, and reload() swaps in a new one atomically, so a query sees
+ * either the old ranks or the new ones, never a mix. Code that makes
+ * several queries and needs them to agree should call getIndex() once and
+ * query the snapshot. Loads hold the index's lock, because they share the
+ * readers.
+ */
 public class RankFinder {
 	private static Log log = LogFactory.getLog(RankFinder.class);
 	
 	private int maxCharacters;
 	private RankReader characterReader;
 	private RankReader wordReader;
-	private Map<String, Integer> characterRanks = new HashMap<String, Integer>();
-	private Map<String, Integer> wordRanks = new HashMap<String, Integer>();
+	private final AtomicReference<RankIndex> index = 
+		new AtomicReference<RankIndex>();
 
 	public RankReader getCharacterReader() {
 		return characterReader;
@@ -31,117 +38,160 @@ public class RankFinder {
 		this.wordReader = wordReader;
 	}
 
-	public int getCharacterRank(String character) {
-		Integer rank = characterRanks.get(character);
-		return rank != null ? rank : maxCharacters + 1;
-	}
-
-	public int[] getRanks(String text, CharacterClassifier classifier) {
-		int[] ranks = new int[text.length()];
-		for (int i = 0; i < text.length(); i++) {
-			char c = text.charAt(i);
-			ranks[i] = 
-					classifier.isChinese(c)
-					? getCharacterRank(text.substring(i, i+1))
-					: 0;
-		}
-		return ranks;
-	}
-
+	/**
+	 * Load the index, unless it's already loaded.
+	 */
 	public void load() {
-		if (characterRanks.size() > 0 || wordRanks.size() > 0)
+		if (index.get() != null)
 		{
 			// already loaded.
 			return;
 		}
-		
-		characterReader.open();
-		try
-		{
-			for (int rank = 1; rank <= maxCharacters; rank++)
+		synchronized (index) {
+			if (index.get() == null)
 			{
-				String character = characterReader.nextItem();
-				characterRanks.put(character, rank);
+				reload();
 			}
-		}finally
-		{
-			characterReader.close();
 		}
-		
-		wordReader.open();
-		try
-		{
-			int rank = 1;
-			int unknownStreak = 0;
-			while (wordReader.hasNext() && unknownStreak < 10)
-			{
-				String word = wordReader.nextItem();
-				boolean hasUnknownCharacter = false;
-				for (int i = 0; i < word.length() && !hasUnknownCharacter; i++)
-				{
-					String character = word.substring(i, i+1);
-					hasUnknownCharacter = !containsCharacter(character);
-				}
-				if (!hasUnknownCharacter) {
-					wordRanks.put(word, rank);
-					rank++;
-					unknownStreak = 0;
-				}else
-				{
-					unknownStreak++;
-				}
+	}
+
+	/**
+	 * Read the frequency lists again and replace the current index. Queries
+	 * keep using the old index until the new one is complete. Only one load
+	 * reads the lists at a time.
+	 */
+	public void reload() {
+		synchronized (index) {
+			RankIndexBuilder builder = new RankIndexBuilder();
+			builder.setCharacterReader(characterReader);
+			builder.setWordReader(wordReader);
+			builder.setMaxCharacters(maxCharacters);
+			RankIndex newIndex = builder.build();
+			index.set(newIndex);
+			
+			if (log.isInfoEnabled()) {
+				log.info(String.format(
+						"Loaded %1$d characters and %2$d words.",
+						newIndex.getCharacterCount(), 
+						newIndex.getWordCount()));
 			}
-		}finally
-		{
-			wordReader.close();
 		}
-		
-		if (log.isInfoEnabled()) {
-			log.info(String.format(
-					"Loaded %1$d characters and %2$d words.",
-					characterRanks.size(), 
-					wordRanks.size()));
+	}
+
+	/**
+	 * Get the current index, loading it if necessary. The snapshot never
+	 * changes, even if the finder is reloaded.
+	 * @return the current index
+	 */
+	public RankIndex getIndex() {
+		RankIndex currentIndex = index.get();
+		if (currentIndex == null)
+		{
+			load();
+			currentIndex = index.get();
 		}
+		return currentIndex;
+	}
+
+	public int getCharacterRank(String character) {
+		return getIndex().getCharacterRank(character);
+	}
+
+	/**
+	 * Look up a character's rank without allocating anything.
+	 * @param codePoint the character to look up
+	 * @return the character's rank, or one more than the maximum rank if the
+	 * character is unknown.
+	 */
+	public int getCharacterRank(int codePoint) {
+		return getIndex().getCharacterRank(codePoint);
+	}
+
+	/**
+	 * Rank each character in some text.
+	 * @see RankIndex#getRanks(String, CharacterClassifier)
+	 */
+	public int[] getRanks(String text, CharacterClassifier classifier) {
+		return getIndex().getRanks(text, classifier);
 	}
 
 	public boolean containsCharacter(String character) {
-		return characterRanks.containsKey(character);
+		return getIndex().containsCharacter(character);
+	}
+
+	public boolean containsCharacter(int codePoint) {
+		return getIndex().containsCharacter(codePoint);
 	}
 
 	public int getMaxCharacters() {
 		return maxCharacters;
 	}
 
+	/**
+	 * Sets how many characters to load. This takes effect the next time the
+	 * index is loaded.
+	 * @param maxCharacters the number of characters to load
+	 */
 	public void setMaxCharacters(int maxCharacters) {
 		this.maxCharacters = maxCharacters;
 	}
 
+	/**
+	 * Look up a word's rank.
+	 * @param word the word to look up
+	 * @return the word's rank, or one more than the number of words loaded
+	 * if the word is unknown.
+	 */
 	public int getWordRank(String word) {
-		return wordRanks.get(word);
+		return getIndex().getWordRank(word);
+	}
+
+	/**
+	 * Look up the rank of a word that is part of some text.
+	 * @see RankIndex#getWordRank(CharSequence, int, int)
+	 */
+	public int getWordRank(CharSequence text, int start, int end) {
+		return getIndex().getWordRank(text, start, end);
 	}
 
 	public boolean containsWord(String word) {
-		return wordRanks.containsKey(word);
+		return getIndex().containsWord(word);
+	}
+
+	/**
+	 * Find the highest rank of any character in a word.
+	 * @see RankIndex#getMaxCharacterRank(String)
+	 */
+	public int getMaxCharacterRank(String word) {
+		return getIndex().getMaxCharacterRank(word);
+	}
+
+	/**
+	 * Check a batch of words against a character rank limit.
+	 * @see RankIndex#findCommonWords(String[], int)
+	 */
+	public boolean[] findCommonWords(String[] words, int maxCharacterRank) {
+		return getIndex().findCommonWords(words, maxCharacterRank);
+	}
+
+	/**
+	 * Find the longest known word that starts at an offset in some text.
+	 * @see RankIndex#findWordLength(CharSequence, int)
+	 */
+	public int findWordLength(CharSequence text, int offset) {
+		return getIndex().findWordLength(text, offset);
+	}
+
+	/**
+	 * Split text into words, always taking the longest known word.
+	 * @see RankIndex#splitWords(String)
+	 */
+	public String[] splitWords(String text) {
+		return getIndex().splitWords(text);
 	}
 
 	public int maxRank(String text, CharacterClassifier classifier) {
-		int maxRank = 0;
-		for(char c: text.toCharArray())
-		{
-			if (classifier.isChinese(c))
-			{
-				int rank = getCharacterRank(String.valueOf(c));
-	    		if (rank > maxRank)
-	    		{
-	    			maxRank = rank;
-	    		}
-			}
-			else if (classifier.isJapanese(c))
-			{
-				maxRank = Integer.MAX_VALUE;
-			}
-		}
-		return maxRank;
+		return getIndex().maxRank(text, classifier);
 	}
 
 }
@@ -0,0 +1,269 @@
+package com.google.code.donkirkby;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of character and word ranks. All fields are final
+ * and nothing changes after construction, so one index can be shared by
+ * any number of threads without locking. Use RankIndexBuilder to create
+ * one.
+ */
+public final class RankIndex {
+	private final int maxCharacters;
+	private final CharacterRankTable characterRanks;
+	/** Ranks for any items that aren't a single code point. */
+	private final Map<String, Integer> multiCharacterRanks;
+	private final WordTrie wordRanks;
+	/** The highest character rank in each word, by word index. */
+	private final int[] wordMaxCharacterRanks;
+
+	/**
+	 * The index takes ownership of the tables, and nobody may change them
+	 * afterwards.
+	 */
+	RankIndex(
+			int maxCharacters,
+			CharacterRankTable characterRanks,
+			Map<String, Integer> multiCharacterRanks,
+			WordTrie wordRanks) {
+		this.maxCharacters = maxCharacters;
+		this.characterRanks = characterRanks;
+		this.multiCharacterRanks = Collections.unmodifiableMap(
+				new HashMap<String, Integer>(multiCharacterRanks));
+		this.wordRanks = wordRanks;
+		this.wordMaxCharacterRanks = wordRanks.findMaxCharacterRanks(this);
+	}
+
+	/**
+	 * @return an index with no characters or words.
+	 */
+	public static RankIndex createEmpty() {
+		return new RankIndex(
+				0,
+				new CharacterRankTable(),
+				Collections.<String, Integer>emptyMap(),
+				new WordTrie(Collections.<String, Integer>emptyMap()));
+	}
+
+	static boolean isSingleCodePoint(String character) {
+		int length = character.length();
+		return length == 1 
+			|| (length == 2 
+					&& Character.isHighSurrogate(character.charAt(0))
+					&& Character.isLowSurrogate(character.charAt(1)));
+	}
+
+	public int getMaxCharacters() {
+		return maxCharacters;
+	}
+
+	public int getCharacterCount() {
+		return characterRanks.size() + multiCharacterRanks.size();
+	}
+
+	public int getWordCount() {
+		return wordRanks.size();
+	}
+
+	public int getCharacterRank(String character) {
+		if (isSingleCodePoint(character))
+		{
+			return getCharacterRank(character.codePointAt(0));
+		}
+		Integer rank = multiCharacterRanks.get(character);
+		return rank != null ? rank : maxCharacters + 1;
+	}
+
+	/**
+	 * Look up a character's rank without allocating anything.
+	 * @param codePoint the character to look up
+	 * @return the character's rank, or one more than the maximum rank if the
+	 * character is unknown.
+	 */
+	public int getCharacterRank(int codePoint) {
+		int rank = characterRanks.get(codePoint);
+		return rank != 0 ? rank : maxCharacters + 1;
+	}
+
+	/**
+	 * Rank each character in some text.
+	 * @param text the text to rank
+	 * @param classifier decides which characters are Chinese
+	 * @return one rank for each char in the text, with 0 for anything that
+	 * isn't Chinese. A surrogate pair's rank goes in the first position, and
+	 * the second position gets 0.
+	 */
+	public int[] getRanks(String text, CharacterClassifier classifier) {
+		int[] ranks = new int[text.length()];
+		fillRanks(text, classifier, ranks, 0);
+		return ranks;
+	}
+
+	/**
+	 * Rank each character in some text, writing the ranks into an existing
+	 * array. The ranks are the same as getRanks().
+	 * @param text the text to rank
+	 * @param classifier decides which characters are Chinese
+	 * @param ranks receives one rank for each char in the text
+	 * @param offset where to write the first rank
+	 */
+	public void fillRanks(
+			CharSequence text, 
+			CharacterClassifier classifier,
+			int[] ranks,
+			int offset) {
+		int length = text.length();
+		for (int i = 0; i < length; ) {
+			int codePoint = Character.codePointAt(text, i);
+			int charCount = Character.charCount(codePoint);
+			ranks[offset + i] = 
+					classifier.isChinese(codePoint)
+					? getCharacterRank(codePoint)
+					: 0;
+			if (charCount == 2)
+			{
+				ranks[offset + i + 1] = 0;
+			}
+			i += charCount;
+		}
+	}
+
+	public boolean containsCharacter(String character) {
+		if (isSingleCodePoint(character))
+		{
+			return containsCharacter(character.codePointAt(0));
+		}
+		return multiCharacterRanks.containsKey(character);
+	}
+
+	public boolean containsCharacter(int codePoint) {
+		return characterRanks.contains(codePoint);
+	}
+
+	/**
+	 * Look up a word's rank.
+	 * @param word the word to look up
+	 * @return the word's rank, or one more than the number of words loaded
+	 * if the word is unknown.
+	 */
+	public int getWordRank(String word) {
+		return getWordRank(word, 0, word.length());
+	}
+
+	/**
+	 * Look up the rank of a word that is part of some text, without 
+	 * allocating anything.
+	 * @param text the text that contains the word
+	 * @param start the index of the word's first character
+	 * @param end the index after the word's last character
+	 * @return the word's rank, or one more than the number of words loaded
+	 * if the word is unknown.
+	 */
+	public int getWordRank(CharSequence text, int start, int end) {
+		int wordIndex = wordRanks.indexOf(text, start, end);
+		return wordIndex >= 0 
+			? wordRanks.getRank(wordIndex) 
+			: wordRanks.size() + 1;
+	}
+
+	public boolean containsWord(String word) {
+		return wordRanks.contains(word);
+	}
+
+	/**
+	 * Find the highest rank of any character in a word. Known words are 
+	 * looked up in a column that was filled when the index was built, and
+	 * other words are ranked one char at a time.
+	 * @param word the word to rank
+	 * @return the highest character rank, or 0 for an empty word.
+	 */
+	public int getMaxCharacterRank(String word) {
+		int wordIndex = wordRanks.indexOf(word);
+		if (wordIndex >= 0)
+		{
+			return wordMaxCharacterRanks[wordIndex];
+		}
+		int maxRank = 0;
+		for (int i = 0; i < word.length(); i++) {
+			maxRank = Math.max(maxRank, getCharacterRank(word.charAt(i)));
+		}
+		return maxRank;
+	}
+
+	/**
+	 * Check a batch of words against a character rank limit. Each word
+	 * takes one lookup and one comparison.
+	 * @param words the words to check
+	 * @param maxCharacterRank the highest character rank allowed
+	 * @return true for each known word whose characters are all within
+	 * the limit, and false for unknown words.
+	 */
+	public boolean[] findCommonWords(String[] words, int maxCharacterRank) {
+		boolean[] isCommon = new boolean[words.length];
+		for (int i = 0; i < words.length; i++) {
+			int wordIndex = wordRanks.indexOf(words[i]);
+			isCommon[i] = wordIndex >= 0 
+				&& wordMaxCharacterRanks[wordIndex] <= maxCharacterRank;
+		}
+		return isCommon;
+	}
+
+	/**
+	 * Find the longest known word that starts at an offset in some text.
+	 * @param text the text to search
+	 * @param offset where the word has to start
+	 * @return the length of the word, or 0 if no known word starts there.
+	 */
+	public int findWordLength(CharSequence text, int offset) {
+		return wordRanks.findLongestMatch(text, offset);
+	}
+
+	/**
+	 * Split text into words in a single pass, always taking the longest 
+	 * known word. Any character that doesn't start a known word becomes a
+	 * word by itself.
+	 * @param text the text to split
+	 * @return the words in order.
+	 */
+	public String[] splitWords(String text) {
+		List<String> words = new ArrayList<String>();
+		int offset = 0;
+		while (offset < text.length())
+		{
+			int length = findWordLength(text, offset);
+			if (length == 0)
+			{
+				length = Character.charCount(text.codePointAt(offset));
+			}
+			words.add(text.substring(offset, offset + length));
+			offset += length;
+		}
+		return words.toArray(new String[words.size()]);
+	}
+
+	public int maxRank(String text, CharacterClassifier classifier) {
+		int maxRank = 0;
+		for (int i = 0; i < text.length(); )
+		{
+			int codePoint = text.codePointAt(i);
+			i += Character.charCount(codePoint);
+			if (classifier.isChinese(codePoint))
+			{
+				int rank = getCharacterRank(codePoint);
+	    		if (rank > maxRank)
+	    		{
+	    			maxRank = rank;
+	    		}
+			}
+			else if (classifier.isJapanese(codePoint))
+			{
+				maxRank = Integer.MAX_VALUE;
+			}
+		}
+		return maxRank;
+	}
+}
@@ -0,0 +1,123 @@
+package com.google.code.donkirkby;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the character and word lists and builds a RankIndex from them.
+ * Every call to build() reads the lists again and returns a new index, so
+ * the builder can be reused to reload changed files.
+ */
+public class RankIndexBuilder {
+	private static final int BATCH_SIZE = 1024;
+
+	private int maxCharacters;
+	private RankReader characterReader;
+	private RankReader wordReader;
+
+	public RankIndex build() {
+		CharacterRankTable characterRanks = new CharacterRankTable();
+		Map<String, Integer> multiCharacterRanks = 
+			new HashMap<String, Integer>();
+		String[] characters = new String[maxCharacters];
+		characterReader.open();
+		try
+		{
+			int characterCount = 0;
+			int count;
+			while (characterCount < maxCharacters 
+					&& (count = characterReader.nextItems(
+							maxCharacters - characterCount, 
+							characters)) > 0)
+			{
+				for (int i = 0; i < count; i++) {
+					String character = characters[i];
+					int rank = characterCount + i + 1;
+					if (RankIndex.isSingleCodePoint(character))
+					{
+						characterRanks.put(character.codePointAt(0), rank);
+					}else
+					{
+						multiCharacterRanks.put(character, rank);
+					}
+				}
+				characterCount += count;
+			}
+			if (characterCount < maxCharacters)
+			{
+				throw new NoSuchElementException(
+						"Expected " + maxCharacters + 
+						" characters, but only found " + characterCount + ".");
+			}
+		}finally
+		{
+			characterReader.close();
+		}
+		
+		Map<String, Integer> wordRanks = new HashMap<String, Integer>();
+		wordReader.open();
+		try
+		{
+			String[] words = new String[BATCH_SIZE];
+			int rank = 1;
+			int unknownStreak = 0;
+			int count;
+			while (unknownStreak < 10 
+					&& (count = wordReader.nextItems(BATCH_SIZE, words)) > 0)
+			{
+				for (int j = 0; j < count && unknownStreak < 10; j++) {
+					String word = words[j];
+					boolean hasUnknownCharacter = false;
+					for (int i = 0; 
+							i < word.length() && !hasUnknownCharacter; 
+							i++)
+					{
+						hasUnknownCharacter = 
+							!characterRanks.contains(word.charAt(i));
+					}
+					if (!hasUnknownCharacter) {
+						wordRanks.put(word, rank);
+						rank++;
+						unknownStreak = 0;
+					}else
+					{
+						unknownStreak++;
+					}
+				}
+			}
+		}finally
+		{
+			wordReader.close();
+		}
+		return new RankIndex(
+				maxCharacters,
+				characterRanks,
+				multiCharacterRanks,
+				new WordTrie(wordRanks));
+	}
+
+	public int getMaxCharacters() {
+		return maxCharacters;
+	}
+
+	public void setMaxCharacters(int maxCharacters) {
+		this.maxCharacters = maxCharacters;
+	}
+
+	public RankReader getCharacterReader() {
+		return characterReader;
+	}
+
+	public void setCharacterReader(RankReader characterReader) {
+		this.characterReader = characterReader;
+	}
+
+	public RankReader getWordReader() {
+		return wordReader;
+	}
+
+	public void setWordReader(RankReader wordReader) {
+		this.wordReader = wordReader;
+	}
+}
@@ -4,6 +4,14 @@ public interface RankReader {
 
 	public String nextItem();
 
+	/**
+	 * Read several items at once.
+	 * @param maxCount the most items to read
+	 * @param items receives the items, starting at index 0
+	 * @return the number of items read, or 0 if there are no more.
+	 */
+	public int nextItems(int maxCount, String[] items);
+
 	public void open();
 
 	public void close();
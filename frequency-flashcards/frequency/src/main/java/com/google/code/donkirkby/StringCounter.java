@@ -0,0 +1,257 @@
+package com.google.code.donkirkby;
+
+import java.util.Arrays;
+
+/**
+ * Counts strings in an open-addressing hash table made of primitive arrays.
+ * Keys can be counted straight out of a larger piece of text, and a String
+ * is only created the first time a key is added.
+ */
+public class StringCounter {
+	private static final int MIN_CAPACITY = 16;
+
+	private String[] keys;
+	private int[] hashes;
+	private long[] counts;
+	private int size;
+
+	public StringCounter() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * @param expectedSize how many keys to make room for before growing
+	 */
+	public StringCounter(int expectedSize) {
+		allocate(tableSizeFor(expectedSize));
+	}
+
+	private static int tableSizeFor(int expectedSize) {
+		int tableSize = MIN_CAPACITY;
+		// Keep the table at most half full.
+		while (tableSize < 2L * expectedSize)
+		{
+			tableSize <<= 1;
+		}
+		return tableSize;
+	}
+
+	private void allocate(int tableSize) {
+		keys = new String[tableSize];
+		hashes = new int[tableSize];
+		counts = new long[tableSize];
+		size = 0;
+	}
+
+	/**
+	 * The same hash as String.hashCode(), but for part of a CharSequence.
+	 */
+	public static int hash(CharSequence text, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + text.charAt(i);
+		}
+		return hash;
+	}
+
+	private static int spread(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		return hash;
+	}
+
+	private static boolean matches(
+			String key, 
+			CharSequence text, 
+			int start, 
+			int end) {
+		if (key.length() != end - start)
+		{
+			return false;
+		}
+		for (int i = start; i < end; i++) {
+			if (key.charAt(i - start) != text.charAt(i))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the slot that holds the key, or the empty slot where it
+	 * belongs.
+	 */
+	private int findSlot(CharSequence text, int start, int end, int hash) {
+		int mask = keys.length - 1;
+		int slot = spread(hash) & mask;
+		while (keys[slot] != null 
+				&& (hashes[slot] != hash 
+						|| ! matches(keys[slot], text, start, end)))
+		{
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Add to the count of part of some text.
+	 * @param text holds the key
+	 * @param start the index of the key's first character
+	 * @param end the index after the key's last character
+	 * @param count how much to add
+	 * @return the new count
+	 */
+	public long add(CharSequence text, int start, int end, long count) {
+		int hash = hash(text, start, end);
+		int slot = findSlot(text, start, end, hash);
+		if (keys[slot] == null)
+		{
+			keys[slot] = text.subSequence(start, end).toString();
+			hashes[slot] = hash;
+			size++;
+			if (2 * size > keys.length)
+			{
+				grow();
+				slot = findSlot(text, start, end, hash);
+			}
+		}
+		counts[slot] += count;
+		return counts[slot];
+	}
+
+	/**
+	 * Add to the count of part of some text, but only if the key is
+	 * already in the table.
+	 * @return the new count, or 0 if the key isn't in the table.
+	 */
+	public long addExisting(
+			CharSequence text, 
+			int start, 
+			int end, 
+			long count) {
+		int slot = findSlot(text, start, end, hash(text, start, end));
+		if (keys[slot] == null)
+		{
+			return 0;
+		}
+		counts[slot] += count;
+		return counts[slot];
+	}
+
+	public long add(String key, long count) {
+		return add(key, 0, key.length(), count);
+	}
+
+	/**
+	 * @return the key's count, or 0 if it was never added.
+	 */
+	public long get(CharSequence text, int start, int end) {
+		int slot = findSlot(text, start, end, hash(text, start, end));
+		return keys[slot] == null ? 0 : counts[slot];
+	}
+
+	public long get(String key) {
+		return get(key, 0, key.length());
+	}
+
+	public boolean contains(CharSequence text, int start, int end) {
+		int slot = findSlot(text, start, end, hash(text, start, end));
+		return keys[slot] != null;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private void grow() {
+		String[] oldKeys = keys;
+		int[] oldHashes = hashes;
+		long[] oldCounts = counts;
+		allocate(oldKeys.length * 2);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null)
+			{
+				insert(oldKeys[i], oldHashes[i], oldCounts[i]);
+			}
+		}
+	}
+
+	private void insert(String key, int hash, long count) {
+		int slot = findSlot(key, 0, key.length(), hash);
+		keys[slot] = key;
+		hashes[slot] = hash;
+		counts[slot] = count;
+		size++;
+	}
+
+	/**
+	 * Remove the keys with the lowest counts, and shrink the table to fit
+	 * the rest. If several keys tie at the cutoff count, only enough of 
+	 * them are removed to make up the number.
+	 * @param removeCount how many keys to remove
+	 * @return the highest count removed, or 0 if nothing was removed.
+	 */
+	public long removeLowest(int removeCount) {
+		removeCount = Math.min(removeCount, size);
+		if (removeCount <= 0)
+		{
+			return 0;
+		}
+		long[] sortedCounts = copyCounts();
+		Arrays.sort(sortedCounts);
+		long cutoff = sortedCounts[removeCount - 1];
+		int tiesToRemove = removeCount;
+		for (int i = 0; sortedCounts[i] < cutoff; i++) {
+			tiesToRemove--;
+		}
+		String[] oldKeys = keys;
+		int[] oldHashes = hashes;
+		long[] oldCounts = counts;
+		allocate(tableSizeFor(size - removeCount));
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] == null || oldCounts[i] < cutoff)
+			{
+				continue;
+			}
+			if (oldCounts[i] == cutoff && tiesToRemove > 0)
+			{
+				tiesToRemove--;
+				continue;
+			}
+			insert(oldKeys[i], oldHashes[i], oldCounts[i]);
+		}
+		return cutoff;
+	}
+
+	/**
+	 * @return all the keys, in the same order as copyCounts().
+	 */
+	public String[] copyKeys() {
+		String[] copy = new String[size];
+		int next = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null)
+			{
+				copy[next++] = keys[i];
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * @return all the counts, in the same order as copyKeys().
+	 */
+	public long[] copyCounts() {
+		long[] copy = new long[size];
+		int next = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null)
+			{
+				copy[next++] = counts[i];
+			}
+		}
+		return copy;
+	}
+}
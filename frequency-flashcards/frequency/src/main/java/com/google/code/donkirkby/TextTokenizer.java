@@ -0,0 +1,208 @@
+package com.google.code.donkirkby;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Splits a stream of text into tokens and lines without using regular
+ * expressions. It decodes the stream a block at a time into a CharBuffer.
+ * White space and line breaks are the same as the \s pattern and
+ * Scanner.nextLine().
+ */
+public class TextTokenizer {
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private ReadableByteChannel channel;
+	private CharsetDecoder decoder;
+	private ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+	private CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+	private boolean isInputFinished;
+	private boolean isDecoderFlushed;
+	private StringBuilder tokenBuilder = new StringBuilder();
+
+	public TextTokenizer(InputStream inputStream, Charset charset) {
+		channel = Channels.newChannel(inputStream);
+		decoder = charset.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		chars.flip();
+	}
+
+	/**
+	 * Same as the \s pattern in regular expressions.
+	 */
+	public static boolean isWhitespace(int c) {
+		return c == ' '
+			|| c == '\t'
+			|| c == '\n'
+			|| c == '\u000B'
+			|| c == '\f'
+			|| c == '\r';
+	}
+
+	/**
+	 * Line breaks other than \r, which might be followed by \n.
+	 */
+	private static boolean isLineBreak(int c) {
+		return c == '\n'
+			|| c == '\u2028'
+			|| c == '\u2029'
+			|| c == '\u0085';
+	}
+
+	/**
+	 * Make sure there are characters in the buffer, unless the stream is
+	 * finished.
+	 * @return true if there are characters in the buffer.
+	 */
+	private boolean fill() throws IOException {
+		while ( ! chars.hasRemaining())
+		{
+			if (isDecoderFlushed)
+			{
+				return false;
+			}
+			chars.clear();
+			if ( ! isInputFinished && channel.read(bytes) < 0)
+			{
+				isInputFinished = true;
+			}
+			bytes.flip();
+			CoderResult result = decoder.decode(bytes, chars, isInputFinished);
+			bytes.compact();
+			if (isInputFinished && result.isUnderflow())
+			{
+				decoder.flush(chars);
+				isDecoderFlushed = true;
+			}
+			chars.flip();
+		}
+		return true;
+	}
+
+	/**
+	 * @return the next character without consuming it, or -1 at the end
+	 * of the stream.
+	 */
+	private int peek() throws IOException {
+		return fill() ? chars.get(chars.position()) : -1;
+	}
+
+	/**
+	 * Check whether there is any more text, even an empty line.
+	 * @return true if anything is left in the stream.
+	 */
+	public boolean hasMoreInput() throws IOException {
+		return fill();
+	}
+
+	/**
+	 * Skip past the next line break, or to the end of the stream.
+	 * @return false if there was nothing left to skip.
+	 */
+	public boolean skipLine() throws IOException {
+		if ( ! fill())
+		{
+			return false;
+		}
+		while (fill())
+		{
+			char c = chars.get();
+			if (isLineBreak(c))
+			{
+				break;
+			}
+			if (c == '\r')
+			{
+				if (peek() == '\n')
+				{
+					chars.get();
+				}
+				break;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Skip white space, including line breaks.
+	 * @return true if there is a token after the white space.
+	 */
+	public boolean skipWhitespace() throws IOException {
+		while (fill())
+		{
+			if ( ! isWhitespace(chars.get(chars.position())))
+			{
+				return true;
+			}
+			chars.get();
+		}
+		return false;
+	}
+
+	/**
+	 * Read the next run of characters that aren't white space.
+	 * @return the token, or null at the end of the stream.
+	 */
+	public String nextToken() throws IOException {
+		if ( ! skipWhitespace())
+		{
+			return null;
+		}
+		tokenBuilder.setLength(0);
+		while (fill())
+		{
+			int start = chars.position();
+			int end = start;
+			int limit = chars.limit();
+			while (end < limit && ! isWhitespace(chars.get(end)))
+			{
+				end++;
+			}
+			tokenBuilder.append(
+					chars.array(),
+					chars.arrayOffset() + start,
+					end - start);
+			chars.position(end);
+			if (end < limit)
+			{
+				break;
+			}
+		}
+		return tokenBuilder.toString();
+	}
+
+	/**
+	 * Read the next character that isn't white space. A surrogate pair is
+	 * read as a single character.
+	 * @return the character, or null at the end of the stream.
+	 */
+	public String nextCharacter() throws IOException {
+		if ( ! skipWhitespace())
+		{
+			return null;
+		}
+		char c = chars.get();
+		if (Character.isHighSurrogate(c))
+		{
+			int next = peek();
+			if (next >= 0 && Character.isLowSurrogate((char)next))
+			{
+				return new String(new char[] {c, chars.get()});
+			}
+		}
+		return String.valueOf(c);
+	}
+
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,244 @@
+package com.google.code.donkirkby;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A read-only trie of ranked words, packed into a few primitive arrays so
+ * lookups don't allocate. Each node's edges are stored contiguously and
+ * sorted by character, so finding a child is a binary search. Every word
+ * has an index from 0 to size()-1 that can be used with getRank(int).
+ */
+public class WordTrie {
+	private static final int ROOT = 0;
+
+	/** Edges of node n are at indexes firstEdge[n] to firstEdge[n+1]-1. */
+	private int[] firstEdge;
+	private char[] edgeCharacters;
+	private int[] edgeTargets;
+	/** The index of the word that ends at each node, or -1. */
+	private int[] nodeWords;
+	private int[] ranks;
+
+	/**
+	 * Build a trie from a map of words to ranks.
+	 * @param wordRanks the words and their ranks
+	 */
+	public WordTrie(Map<String, Integer> wordRanks) {
+		String[] words = new String[wordRanks.size()];
+		int totalLength = 0;
+		int i = 0;
+		for (String word : wordRanks.keySet()) {
+			words[i++] = word;
+			totalLength += word.length();
+		}
+		words = sortWords(words);
+		ranks = new int[words.length];
+		for (i = 0; i < words.length; i++) {
+			ranks[i] = wordRanks.get(words[i]);
+		}
+		build(words, totalLength + 1);
+	}
+
+	/**
+	 * Sorts by the first character with a counting sort, then sorts each
+	 * bucket. The buckets are small, so this is much faster than sorting the
+	 * whole array by comparison.
+	 */
+	private static String[] sortWords(String[] words) {
+		// Bucket 0 holds the empty string, bucket c+1 the words starting with c.
+		int[] bucketStarts = new int[Character.MAX_VALUE + 3];
+		for (String word : words) {
+			bucketStarts[bucketOf(word) + 1]++;
+		}
+		for (int i = 1; i < bucketStarts.length; i++) {
+			bucketStarts[i] += bucketStarts[i-1];
+		}
+		int[] nextPositions = bucketStarts.clone();
+		String[] sorted = new String[words.length];
+		for (String word : words) {
+			sorted[nextPositions[bucketOf(word)]++] = word;
+		}
+		for (int bucket = 0; bucket < bucketStarts.length - 1; bucket++) {
+			int start = bucketStarts[bucket];
+			int end = bucketStarts[bucket + 1];
+			if (end - start > 1)
+			{
+				Arrays.sort(sorted, start, end);
+			}
+		}
+		return sorted;
+	}
+
+	private static int bucketOf(String word) {
+		return word.length() == 0 ? 0 : word.charAt(0) + 1;
+	}
+
+	/**
+	 * Lays out the nodes in breadth-first order, so each node's children
+	 * get consecutive edges.
+	 */
+	private void build(String[] words, int maxNodes) {
+		firstEdge = new int[maxNodes + 1];
+		edgeCharacters = new char[maxNodes - 1];
+		edgeTargets = new int[maxNodes - 1];
+		nodeWords = new int[maxNodes];
+		Arrays.fill(nodeWords, -1);
+
+		// Each node covers the range of sorted words that share its prefix.
+		int[] rangeStarts = new int[maxNodes];
+		int[] rangeEnds = new int[maxNodes];
+		int[] depths = new int[maxNodes];
+		rangeEnds[ROOT] = words.length;
+		int nodeCount = 1;
+		int edgeCount = 0;
+		for (int node = 0; node < nodeCount; node++) {
+			firstEdge[node] = edgeCount;
+			int start = rangeStarts[node];
+			int end = rangeEnds[node];
+			int depth = depths[node];
+			if (start < end && words[start].length() == depth)
+			{
+				// Sorting puts the word that ends here first.
+				nodeWords[node] = start;
+				start++;
+			}
+			while (start < end)
+			{
+				char c = words[start].charAt(depth);
+				int childEnd = start + 1;
+				while (childEnd < end && words[childEnd].charAt(depth) == c)
+				{
+					childEnd++;
+				}
+				edgeCharacters[edgeCount] = c;
+				edgeTargets[edgeCount] = nodeCount;
+				edgeCount++;
+				rangeStarts[nodeCount] = start;
+				rangeEnds[nodeCount] = childEnd;
+				depths[nodeCount] = depth + 1;
+				nodeCount++;
+				start = childEnd;
+			}
+		}
+		firstEdge[nodeCount] = edgeCount;
+
+		firstEdge = Arrays.copyOf(firstEdge, nodeCount + 1);
+		edgeCharacters = Arrays.copyOf(edgeCharacters, edgeCount);
+		edgeTargets = Arrays.copyOf(edgeTargets, edgeCount);
+		nodeWords = Arrays.copyOf(nodeWords, nodeCount);
+	}
+
+	/**
+	 * @return the child node reached from node by c, or -1 if there is none.
+	 */
+	private int findChild(int node, char c) {
+		int low = firstEdge[node];
+		int high = firstEdge[node + 1] - 1;
+		while (low <= high)
+		{
+			int middle = (low + high) >>> 1;
+			char middleCharacter = edgeCharacters[middle];
+			if (middleCharacter < c)
+			{
+				low = middle + 1;
+			}else if (middleCharacter > c)
+			{
+				high = middle - 1;
+			}else
+			{
+				return edgeTargets[middle];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Find the index of a word that is part of some text.
+	 * @param text the text that contains the word
+	 * @param start the index of the word's first character
+	 * @param end the index after the word's last character
+	 * @return the word's index, or -1 if it isn't in the trie.
+	 */
+	public int indexOf(CharSequence text, int start, int end) {
+		int node = ROOT;
+		for (int i = start; i < end && node >= 0; i++) {
+			node = findChild(node, text.charAt(i));
+		}
+		return node >= 0 ? nodeWords[node] : -1;
+	}
+
+	public int indexOf(CharSequence word) {
+		return indexOf(word, 0, word.length());
+	}
+
+	public boolean contains(CharSequence word) {
+		return indexOf(word) >= 0;
+	}
+
+	/**
+	 * Find the longest word that starts at an offset in some text.
+	 * @param text the text to search
+	 * @param offset where the word has to start
+	 * @return the length of the longest matching word, or 0 if no word
+	 * matches.
+	 */
+	public int findLongestMatch(CharSequence text, int offset) {
+		int matchLength = 0;
+		int node = ROOT;
+		for (int i = offset; i < text.length(); i++) {
+			node = findChild(node, text.charAt(i));
+			if (node < 0)
+			{
+				break;
+			}
+			if (nodeWords[node] >= 0)
+			{
+				matchLength = i + 1 - offset;
+			}
+		}
+		return matchLength;
+	}
+
+	/**
+	 * @param wordIndex a word's index, as returned by indexOf()
+	 * @return the word's rank
+	 */
+	public int getRank(int wordIndex) {
+		return ranks[wordIndex];
+	}
+
+	/**
+	 * Find the highest character rank in every word with one pass over the
+	 * nodes. Parents come before their children, so each node's maximum
+	 * is its parent's maximum combined with the rank of the edge into it.
+	 * @param index ranks the characters
+	 * @return the highest character rank for each word index, or 0 for the
+	 * empty word.
+	 */
+	int[] findMaxCharacterRanks(RankIndex index) {
+		int[] nodeMaxRanks = new int[nodeWords.length];
+		int[] wordMaxRanks = new int[ranks.length];
+		for (int node = 0; node < nodeWords.length; node++) {
+			int nodeMaxRank = nodeMaxRanks[node];
+			if (nodeWords[node] >= 0)
+			{
+				wordMaxRanks[nodeWords[node]] = nodeMaxRank;
+			}
+			for (int edge = firstEdge[node]; edge < firstEdge[node + 1]; edge++) {
+				nodeMaxRanks[edgeTargets[edge]] = Math.max(
+						nodeMaxRank,
+						index.getCharacterRank(edgeCharacters[edge]));
+			}
+		}
+		return wordMaxRanks;
+	}
+
+	/**
+	 * @return the number of words in the trie.
+	 */
+	public int size() {
+		return ranks.length;
+	}
+}
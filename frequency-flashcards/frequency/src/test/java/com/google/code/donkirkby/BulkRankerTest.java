@@ -0,0 +1,98 @@
+package com.google.code.donkirkby;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+public class BulkRankerTest {
+	private RankFinder createRankFinder() {
+		RankFinder finder = new RankFinder();
+		finder.setCharacterReader(new MockRankReader("的", "是", "我", "𠀀"));
+		finder.setWordReader(new MockRankReader());
+		finder.setMaxCharacters(4);
+		return finder;
+	}
+
+	@Test
+	public void rank() throws Exception {
+		// SETUP
+		RankFinder finder = createRankFinder();
+		BulkRanker ranker = new BulkRanker();
+		ranker.setRankFinder(finder);
+		ranker.setThreadCount(2);
+		ranker.setChunkSize(2);
+		List<String> texts = Arrays.asList("我是", "", "x不的", "𠀀a", "是");
+		
+		// EXEC
+		PackedRanks ranks = ranker.rank(texts);
+		
+		// VERIFY
+		Assert.assertEquals("text count should match", 5, ranks.getTextCount());
+		for (int i = 0; i < texts.size(); i++) {
+			Assert.assertArrayEquals(
+					"ranks should match for " + texts.get(i), 
+					finder.getRanks(texts.get(i), new CharacterClassifier()), 
+					ranks.getRanks(i));
+		}
+		Assert.assertEquals("offset should match", 2, ranks.getOffset(2));
+		Assert.assertEquals("length should match", 3, ranks.getLength(2));
+		Assert.assertArrayEquals(
+				"max ranks should match",
+				new int[] {3, 0, 5, 4, 2},
+				new int[] {
+						ranks.getMaxRank(0), 
+						ranks.getMaxRank(1), 
+						ranks.getMaxRank(2), 
+						ranks.getMaxRank(3), 
+						ranks.getMaxRank(4)});
+		Assert.assertEquals("unknown count should match", 1, ranks.getUnknownCount(2));
+		Assert.assertEquals("unknown count should match", 0, ranks.getUnknownCount(0));
+	}
+
+	@Test
+	public void rankLines() throws Exception {
+		// SETUP
+		BulkRanker ranker = new BulkRanker();
+		ranker.setRankFinder(createRankFinder());
+		ByteArrayResource resource = new ByteArrayResource(
+				"我是\r\n的x\n".getBytes("UTF-8"));
+		
+		// EXEC
+		PackedRanks ranks = ranker.rankLines(resource);
+		
+		// VERIFY
+		Assert.assertArrayEquals(
+				"packed ranks should match", 
+				new int[] {3, 2, 1, 0}, 
+				ranks.getRanks());
+		Assert.assertEquals("max rank should match", 1, ranks.getMaxRank(1));
+	}
+	
+	@Test
+	public void invalidChunkSize() throws Exception {
+		// SETUP
+		BulkRanker ranker = new BulkRanker();
+		
+		// EXEC
+		String msg = null;
+		try
+		{
+			ranker.setChunkSize(0);
+			
+			Assert.fail("Should have thrown");
+		}catch (IllegalArgumentException ex)
+		{
+			msg = ex.getMessage();
+		}
+		
+		// VERIFY
+		Assert.assertEquals(
+				"message",
+				"Chunk size must be at least 1, but was 0.",
+				msg);
+		Assert.assertEquals("chunk size should not change", 4096, ranker.getChunkSize());
+	}
+}
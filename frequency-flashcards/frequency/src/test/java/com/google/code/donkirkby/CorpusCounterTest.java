@@ -0,0 +1,71 @@
+package com.google.code.donkirkby;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+
+public class CorpusCounterTest {
+	private List<String> readItems(File file) {
+		DefaultRankReader reader = new DefaultRankReader();
+		reader.setResource(new FileSystemResource(file));
+		List<String> items = new ArrayList<String>();
+		reader.open();
+		try
+		{
+			while (reader.hasNext())
+			{
+				items.add(reader.nextItem());
+			}
+		}finally
+		{
+			reader.close();
+		}
+		return items;
+	}
+	
+	@Test
+	public void count() throws Exception {
+		// SETUP
+		CorpusCounter counter = new CorpusCounter();
+		counter.setThreadCount(2);
+		counter.setBatchSize(1);
+		counter.setMaxWordLength(2);
+		ByteArrayResource input = new ByteArrayResource((
+				"1\tcmn\t我是我\n" +
+				"2\teng\tI am\n" +
+				"3\tcmn\t是我, 我是\n").getBytes("UTF-8"));
+		File characterFile = File.createTempFile("characters", ".txt");
+		File wordFile = File.createTempFile("words", ".txt");
+		
+		try
+		{
+			// EXEC
+			counter.count(input);
+			counter.writeCharacters(characterFile);
+			counter.writeWords(wordFile);
+			List<String> characters = readItems(characterFile);
+			List<String> words = readItems(wordFile);
+			
+			// VERIFY
+			Assert.assertEquals("characters should match", "[我, 是]", characters.toString());
+			Assert.assertEquals("words should match", "[我是, 是我]", words.toString());
+			Assert.assertEquals(
+					"count of wo should match", 
+					4, 
+					counter.getCharacterCounter().getCount("我"));
+			Assert.assertEquals(
+					"count of wo shi should match", 
+					2, 
+					counter.getWordCounter().getCount("我是"));
+		}finally
+		{
+			characterFile.delete();
+			wordFile.delete();
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package com.google.code.donkirkby;
+
+import java.io.File;
+import java.io.FileInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+public class FrequencyIndexTest {
+	@Test
+	public void readCharacters() throws Exception {
+		// SETUP
+		File file = writeIndex();
+		IndexedRankReader reader = new IndexedRankReader();
+		reader.setResource(new FileSystemResource(file));
+		
+		// EXEC
+		String item1;
+		String item2;
+		String item3;
+		boolean hasNext;
+		reader.open();
+		try
+		{
+			item1 = reader.nextItem();
+			item2 = reader.nextItem();
+			item3 = reader.nextItem();
+			hasNext = reader.hasNext();
+		}finally
+		{
+			reader.close();
+			file.delete();
+		}
+		
+		// VERIFY
+		Assert.assertEquals("Item 1 should match", "的", item1);
+		Assert.assertEquals("Item 2 should match", "是", item2);
+		Assert.assertEquals("Item 3 should match", "𠀀", item3);
+		Assert.assertEquals("hasNext should match", false, hasNext);
+	}
+	
+	@Test
+	public void readWordsFromStream() throws Exception {
+		// SETUP
+		File file = writeIndex();
+		byte[] bytes = new byte[(int)file.length()];
+		FileInputStream inputStream = new FileInputStream(file);
+		try
+		{
+			Assert.assertEquals("bytes read", bytes.length, inputStream.read(bytes));
+		}finally
+		{
+			inputStream.close();
+			file.delete();
+		}
+		IndexedRankReader reader = new IndexedRankReader();
+		reader.setResource(new ByteArrayResource(bytes));
+		reader.setReadingWords(true);
+		
+		// EXEC
+		String item1;
+		String item2;
+		boolean hasNext;
+		reader.open();
+		try
+		{
+			item1 = reader.nextItem();
+			item2 = reader.nextItem();
+			hasNext = reader.hasNext();
+		}finally
+		{
+			reader.close();
+		}
+		
+		// VERIFY
+		Assert.assertEquals("Item 1 should match", "我們", item1);
+		Assert.assertEquals("Item 2 should match", "是的", item2);
+		Assert.assertEquals("hasNext should match", false, hasNext);
+	}
+	
+	@Test
+	public void wrongVersion() throws Exception {
+		// SETUP
+		Resource resource = new ByteArrayResource(new byte[] {
+				0x46, 0x52, 0x49, 0x58, // magic
+				0, 0, 0, 99, // version
+				0, 0, 0, 0, // character count
+				0, 0, 0, 0, // word count
+				0, 0, 0, 0}); // end of words
+		IndexedRankReader reader = new IndexedRankReader();
+		reader.setResource(resource);
+		
+		// EXEC
+		String msg = null;
+		try
+		{
+			reader.open();
+			
+			Assert.fail("Should have thrown");
+		}catch (IllegalArgumentException ex)
+		{
+			msg = ex.getMessage();
+		}
+		
+		// VERIFY
+		Assert.assertEquals(
+				"message",
+				"Frequency index has version 99, expected 1. " +
+				"Rebuild the frequency module.",
+				msg);
+	}
+
+	private File writeIndex() throws Exception {
+		File file = File.createTempFile("frequency_index", ".bin");
+		FrequencyIndex.write(
+				new MockRankReader("的", "是", "𠀀"), 
+				new MockRankReader("我們", "是的"), 
+				file);
+		return file;
+	}
+	
+	@Test
+	public void split() throws Exception {
+		// SETUP
+		File file = writeIndex();
+		IndexedRankReader reader = new IndexedRankReader();
+		reader.setResource(new FileSystemResource(file));
+		String[] items = new String[3];
+		
+		// EXEC
+		IndexedRankReader prefix;
+		IndexedRankReader emptySplit;
+		int prefixCount;
+		String prefixItem;
+		int suffixCount;
+		String suffixItem1;
+		String suffixItem2;
+		reader.open();
+		try
+		{
+			prefix = reader.trySplit();
+			prefixCount = prefix.nextItems(3, items);
+			prefixItem = items[0];
+			emptySplit = prefix.trySplit();
+			suffixCount = reader.nextItems(3, items);
+			suffixItem1 = items[0];
+			suffixItem2 = items[1];
+		}finally
+		{
+			reader.close();
+			file.delete();
+		}
+		
+		// VERIFY
+		Assert.assertEquals("prefix count should match", 1, prefixCount);
+		Assert.assertEquals("prefix item should match", "的", prefixItem);
+		Assert.assertNull("empty split should be null", emptySplit);
+		Assert.assertEquals("suffix count should match", 2, suffixCount);
+		Assert.assertEquals("suffix item 1 should match", "是", suffixItem1);
+		Assert.assertEquals("suffix item 2 should match", "𠀀", suffixItem2);
+	}
+}
@@ -18,6 +18,16 @@ public class MockRankReader extends DefaultRankReader {
 		return iterator.next();
 	}
 	
+	@Override
+	public int nextItems(int maxCount, String[] items) {
+		int count = 0;
+		while (count < maxCount && iterator.hasNext())
+		{
+			items[count++] = iterator.next();
+		}
+		return count;
+	}
+	
 	@Override
 	public boolean hasNext() {
 		return iterator.hasNext();
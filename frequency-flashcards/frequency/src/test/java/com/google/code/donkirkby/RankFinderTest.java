@@ -1,5 +1,9 @@
 package com.google.code.donkirkby;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -114,4 +118,231 @@ public class RankFinderTest {
 				4, // 1 + max characters loaded
 				rankX);
 	}
+	
+	@Test
+	public void testCharacterRankByCodePoint() throws Exception {
+		// SETUP
+		MockRankReader characterReader = 
+			new MockRankReader("的", "是", "a", "𠀀");
+		MockRankReader wordReader = new MockRankReader();
+		
+		RankFinder finder = new RankFinder();
+		finder.setCharacterReader(characterReader);
+		finder.setWordReader(wordReader);
+		
+		// EXEC
+		finder.setMaxCharacters(4);
+		finder.load();
+		int rankShi = finder.getCharacterRank('是');
+		int rankA = finder.getCharacterRank('a');
+		int rankExtensionB = finder.getCharacterRank(0x20000);
+		int rankExtensionBString = finder.getCharacterRank("𠀀");
+		int rankUnknown = finder.getCharacterRank('不');
+		
+		// VERIFY
+		Assert.assertEquals("rank of shi should match", 2, rankShi);
+		Assert.assertEquals("rank of a should match", 3, rankA);
+		Assert.assertEquals(
+				"rank of extension B should match", 
+				4, 
+				rankExtensionB);
+		Assert.assertEquals(
+				"rank of extension B string should match", 
+				4, 
+				rankExtensionBString);
+		Assert.assertEquals(
+				"rank of unknown should match", 
+				5, // 1 + max characters loaded
+				rankUnknown);
+	}
+	
+	@Test
+	public void testGetRanks() throws Exception {
+		// SETUP
+		MockRankReader characterReader = new MockRankReader("的", "是", "我");
+		MockRankReader wordReader = new MockRankReader();
+		
+		RankFinder finder = new RankFinder();
+		finder.setCharacterReader(characterReader);
+		finder.setWordReader(wordReader);
+		finder.setMaxCharacters(3);
+		finder.load();
+		CharacterClassifier classifier = new CharacterClassifier();
+		
+		// EXEC
+		int[] ranks = finder.getRanks("我是x不", classifier);
+		int maxRank = finder.maxRank("我是x", classifier);
+		
+		// VERIFY
+		Assert.assertArrayEquals(
+				"ranks should match", 
+				new int[] {3, 2, 0, 4}, 
+				ranks);
+		Assert.assertEquals("max rank should match", 3, maxRank);
+	}
+	
+	@Test
+	public void testUnknownWordRank() throws Exception {
+		// SETUP
+		MockRankReader characterReader = new MockRankReader("a", "b", "c");
+		MockRankReader wordReader = new MockRankReader("ab", "cc");
+		
+		RankFinder finder = new RankFinder();
+		finder.setCharacterReader(characterReader);
+		finder.setWordReader(wordReader);
+		
+		// EXEC
+		finder.setMaxCharacters(3);
+		finder.load();
+		int rankBa = finder.getWordRank("ba");
+		
+		// VERIFY
+		Assert.assertEquals(
+				"rank of ba should match",
+				3, // 1 + words loaded
+				rankBa);
+	}
+	
+	@Test
+	public void testSplitWords() throws Exception {
+		// SETUP
+		MockRankReader characterReader = new MockRankReader("a", "b", "c");
+		MockRankReader wordReader = new MockRankReader("ab", "abc", "ca");
+		
+		RankFinder finder = new RankFinder();
+		finder.setCharacterReader(characterReader);
+		finder.setWordReader(wordReader);
+		
+		// EXEC
+		finder.setMaxCharacters(3);
+		finder.load();
+		String[] words = finder.splitWords("abcabx");
+		int rankCa = finder.getWordRank("abcabx", 2, 4);
+		
+		// VERIFY
+		Assert.assertArrayEquals(
+				"words should match",
+				new String[] {"abc", "ab", "x"},
+				words);
+		Assert.assertEquals(
+				"rank of ca should match",
+				3,
+				rankCa);
+	}
+	
+	@Test
+	public void testRanksOfSurrogatePair() throws Exception {
+		// SETUP
+		MockRankReader characterReader = new MockRankReader("的", "𠀀");
+		MockRankReader wordReader = new MockRankReader();
+		
+		RankFinder finder = new RankFinder();
+		finder.setCharacterReader(characterReader);
+		finder.setWordReader(wordReader);
+		finder.setMaxCharacters(2);
+		finder.load();
+		CharacterClassifier classifier = new CharacterClassifier();
+		
+		// EXEC
+		int[] ranks = finder.getRanks("𠀀的", classifier);
+		int maxRank = finder.maxRank("的𠀀", classifier);
+		
+		// VERIFY
+		Assert.assertArrayEquals(
+				"ranks should match", 
+				new int[] {2, 0, 1}, 
+				ranks);
+		Assert.assertEquals("max rank should match", 2, maxRank);
+	}
+	
+	@Test
+	public void testReload() throws Exception {
+		// SETUP
+		MockRankReader characterReader = new MockRankReader("a", "b");
+		MockRankReader wordReader = new MockRankReader("ab");
+		
+		RankFinder finder = new RankFinder();
+		finder.setCharacterReader(characterReader);
+		finder.setWordReader(wordReader);
+		finder.setMaxCharacters(2);
+		finder.load();
+		RankIndex oldIndex = finder.getIndex();
+		
+		// EXEC
+		characterReader.addItems("c");
+		wordReader.addItems("cb");
+		finder.setMaxCharacters(3);
+		finder.load(); // already loaded, so no change
+		boolean containsBeforeReload = finder.containsWord("cb");
+		finder.reload();
+		int rankAfterReload = finder.getWordRank("cb");
+		
+		// VERIFY
+		Assert.assertFalse("Should not contain cb before reload", containsBeforeReload);
+		Assert.assertEquals("rank after reload should match", 2, rankAfterReload);
+		Assert.assertFalse("old index should not contain cb", oldIndex.containsWord("cb"));
+		Assert.assertTrue("new index should contain cb", finder.containsWord("cb"));
+	}
+	
+	@Test
+	public void testConcurrentReload() throws Exception {
+		// SETUP
+		SlowRankReader characterReader = new SlowRankReader();
+		SlowRankReader wordReader = new SlowRankReader();
+		for (int i = 0; i < 20; i++) {
+			characterReader.addItems(String.valueOf((char) ('a' + i)));
+			wordReader.addItems(String.valueOf((char) ('a' + i)) + "a");
+		}
+		
+		final RankFinder finder = new RankFinder();
+		finder.setCharacterReader(characterReader);
+		finder.setWordReader(wordReader);
+		finder.setMaxCharacters(20);
+		final List<Throwable> errors = 
+			Collections.synchronizedList(new ArrayList<Throwable>());
+		Runnable reloader = new Runnable() {
+			public void run() {
+				try
+				{
+					finder.reload();
+				}catch (Throwable ex)
+				{
+					errors.add(ex);
+				}
+			}
+		};
+		Thread thread1 = new Thread(reloader);
+		Thread thread2 = new Thread(reloader);
+		
+		// EXEC
+		thread1.start();
+		thread2.start();
+		thread1.join();
+		thread2.join();
+		RankIndex index = finder.getIndex();
+		
+		// VERIFY
+		Assert.assertEquals("errors should match", "[]", errors.toString());
+		Assert.assertEquals("character count should match", 20, index.getCharacterCount());
+		Assert.assertEquals("word count should match", 20, index.getWordCount());
+		Assert.assertEquals("rank of ta should match", 20, index.getWordRank("ta"));
+	}
+	
+	/**
+	 * Returns one item at a time, slowly, so that concurrent loads would
+	 * interleave.
+	 */
+	private static class SlowRankReader extends MockRankReader {
+		@Override
+		public int nextItems(int maxCount, String[] items) {
+			try
+			{
+				Thread.sleep(1);
+			}catch (InterruptedException ex)
+			{
+				throw new RuntimeException("Interrupted while reading.", ex);
+			}
+			return super.nextItems(Math.min(maxCount, 1), items);
+		}
+	}
 }
@@ -0,0 +1,104 @@
+package com.google.code.donkirkby;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RankIndexTest {
+	@Test
+	public void build() throws Exception {
+		// SETUP
+		RankIndexBuilder builder = new RankIndexBuilder();
+		builder.setCharacterReader(new MockRankReader("a", "b", "c"));
+		builder.setWordReader(new MockRankReader("ab", "ad", "cc"));
+		builder.setMaxCharacters(3);
+		
+		// EXEC
+		RankIndex index = builder.build();
+		
+		// VERIFY
+		Assert.assertEquals("character count should match", 3, index.getCharacterCount());
+		Assert.assertEquals("word count should match", 2, index.getWordCount());
+		Assert.assertEquals("rank of b should match", 2, index.getCharacterRank("b"));
+		Assert.assertEquals("rank of cc should match", 2, index.getWordRank("cc"));
+		Assert.assertFalse("Should not contain ad", index.containsWord("ad"));
+	}
+	
+	@Test
+	public void buildTwice() throws Exception {
+		// SETUP
+		MockRankReader characterReader = new MockRankReader("a", "b");
+		RankIndexBuilder builder = new RankIndexBuilder();
+		builder.setCharacterReader(characterReader);
+		builder.setWordReader(new MockRankReader());
+		builder.setMaxCharacters(2);
+		RankIndex first = builder.build();
+		
+		// EXEC
+		characterReader.addItems("c");
+		builder.setMaxCharacters(3);
+		RankIndex second = builder.build();
+		
+		// VERIFY
+		Assert.assertEquals("first rank of c should match", 3, first.getCharacterRank("c"));
+		Assert.assertEquals("second rank of c should match", 3, second.getCharacterRank("c"));
+		Assert.assertFalse("first should not contain c", first.containsCharacter("c"));
+		Assert.assertTrue("second should contain c", second.containsCharacter("c"));
+	}
+	
+	@Test
+	public void empty() throws Exception {
+		// EXEC
+		RankIndex index = RankIndex.createEmpty();
+		
+		// VERIFY
+		Assert.assertEquals("character rank should match", 1, index.getCharacterRank("a"));
+		Assert.assertEquals("word rank should match", 1, index.getWordRank("ab"));
+	}
+	
+	@Test
+	public void maxCharacterRank() throws Exception {
+		// SETUP
+		RankIndexBuilder builder = new RankIndexBuilder();
+		builder.setCharacterReader(new MockRankReader("a", "b", "c"));
+		builder.setWordReader(new MockRankReader("ca", "ab", "", "aa"));
+		builder.setMaxCharacters(3);
+		RankIndex index = builder.build();
+		
+		// EXEC
+		int rankCa = index.getMaxCharacterRank("ca");
+		int rankAa = index.getMaxCharacterRank("aa");
+		int rankEmpty = index.getMaxCharacterRank("");
+		int rankUnknown = index.getMaxCharacterRank("ba");
+		int rankUnknownCharacter = index.getMaxCharacterRank("ad");
+		
+		// VERIFY
+		Assert.assertEquals("rank of ca should match", 3, rankCa);
+		Assert.assertEquals("rank of aa should match", 1, rankAa);
+		Assert.assertEquals("rank of empty word should match", 0, rankEmpty);
+		Assert.assertEquals("rank of ba should match", 2, rankUnknown);
+		Assert.assertEquals("rank of ad should match", 4, rankUnknownCharacter);
+	}
+	
+	@Test
+	public void findCommonWords() throws Exception {
+		// SETUP
+		RankIndexBuilder builder = new RankIndexBuilder();
+		builder.setCharacterReader(new MockRankReader("a", "b", "c"));
+		builder.setWordReader(new MockRankReader("ca", "ab"));
+		builder.setMaxCharacters(3);
+		RankIndex index = builder.build();
+		
+		// EXEC
+		boolean[] isCommon = index.findCommonWords(
+				new String[] {"ca", "ab", "ba"}, 
+				2);
+		
+		// VERIFY
+		Assert.assertEquals(
+				"results should match",
+				"[false, true, false]",
+				Arrays.toString(isCommon));
+	}
+}
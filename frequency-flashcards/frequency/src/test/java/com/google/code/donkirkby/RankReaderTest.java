@@ -308,4 +308,118 @@ public class RankReaderTest {
 				"EF",
 				item2);
 	}
+	
+	@Test
+	public void testWindowsLineBreaks() throws Exception {
+		// SETUP
+		String input = "header\r\nAB CD\r\n\r\nEF\r\n";
+		Resource characterResource = 
+			new ByteArrayResource(input.getBytes());
+		DefaultRankReader reader = new DefaultRankReader();
+		reader.setResource(characterResource);
+		reader.setHeaderLineCount(1);
+		
+		// EXEC
+		String item1;
+		String item2;
+		boolean hasNext;
+		reader.open();
+		try
+		{
+			item1 = reader.nextItem();
+			item2 = reader.nextItem();
+			hasNext = reader.hasNext();
+		}finally
+		{
+			reader.close();
+		}
+		
+		// VERIFY
+		Assert.assertEquals(
+				"Item 1 should match",
+				"AB",
+				item1);
+		Assert.assertEquals(
+				"Item 2 should match",
+				"EF",
+				item2);
+		Assert.assertEquals(
+				"hasNext should match",
+				false,
+				hasNext);
+	}
+	
+	@Test
+	public void testSurrogatePairCharacter() throws Exception {
+		// SETUP
+		String input = "𠀀的\n";
+		Resource characterResource = 
+			new ByteArrayResource(input.getBytes("UTF-8"));
+		DefaultRankReader reader = new DefaultRankReader();
+		reader.setResource(characterResource);
+		reader.setParsingTokens(false);
+		reader.setOnePerLine(false);
+		
+		// EXEC
+		String item1;
+		String item2;
+		reader.open();
+		try
+		{
+			item1 = reader.nextItem();
+			item2 = reader.nextItem();
+		}finally
+		{
+			reader.close();
+		}
+		
+		// VERIFY
+		Assert.assertEquals(
+				"Item 1 should match",
+				"𠀀",
+				item1);
+		Assert.assertEquals(
+				"Item 2 should match",
+				"的",
+				item2);
+	}
+	
+	@Test
+	public void testNextItems() throws Exception {
+		// SETUP
+		Resource resource = new ByteArrayResource(
+				"a\nb\nc\n".getBytes("UTF-8"));
+		DefaultRankReader reader = new DefaultRankReader();
+		reader.setResource(resource);
+		String[] items = new String[2];
+		
+		// EXEC
+		int count1;
+		String item1;
+		String item2;
+		int count2;
+		String item3;
+		int count3;
+		reader.open();
+		try
+		{
+			count1 = reader.nextItems(2, items);
+			item1 = items[0];
+			item2 = items[1];
+			count2 = reader.nextItems(2, items);
+			item3 = items[0];
+			count3 = reader.nextItems(2, items);
+		}finally
+		{
+			reader.close();
+		}
+		
+		// VERIFY
+		Assert.assertEquals("count 1 should match", 2, count1);
+		Assert.assertEquals("item 1 should match", "a", item1);
+		Assert.assertEquals("item 2 should match", "b", item2);
+		Assert.assertEquals("count 2 should match", 1, count2);
+		Assert.assertEquals("item 3 should match", "c", item3);
+		Assert.assertEquals("count 3 should match", 0, count3);
+	}
 }
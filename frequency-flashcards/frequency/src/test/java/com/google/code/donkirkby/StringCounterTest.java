@@ -0,0 +1,134 @@
+package com.google.code.donkirkby;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StringCounterTest {
+	@Test
+	public void addPartOfText() throws Exception {
+		// SETUP
+		StringCounter counter = new StringCounter();
+		String text = "abcab";
+		
+		// EXEC
+		counter.add(text, 0, 2, 1);
+		counter.add(text, 3, 5, 1);
+		counter.add(text, 1, 3, 5);
+		long existingCount = counter.addExisting(text, 1, 3, 1);
+		long missingCount = counter.addExisting(text, 2, 4, 1);
+		
+		// VERIFY
+		Assert.assertEquals("count of ab should match", 2, counter.get("ab"));
+		Assert.assertEquals("count of bc should match", 6, existingCount);
+		Assert.assertEquals("count of ca should match", 0, missingCount);
+		Assert.assertEquals("size should match", 2, counter.size());
+	}
+	
+	@Test
+	public void grow() throws Exception {
+		// SETUP
+		StringCounter counter = new StringCounter(1);
+		
+		// EXEC
+		for (int i = 0; i < 1000; i++) {
+			counter.add("key" + i, i);
+		}
+		
+		// VERIFY
+		Assert.assertEquals("size should match", 1000, counter.size());
+		Assert.assertEquals("count should match", 777, counter.get("key777"));
+		Assert.assertEquals("count of missing should match", 0, counter.get("key1000"));
+	}
+	
+	@Test
+	public void removeLowest() throws Exception {
+		// SETUP
+		StringCounter counter = new StringCounter();
+		counter.add("a", 1);
+		counter.add("b", 2);
+		counter.add("c", 3);
+		
+		// EXEC
+		long removedCount = counter.removeLowest(1);
+		
+		// VERIFY
+		Assert.assertEquals("removed count should match", 1, removedCount);
+		Assert.assertEquals("size should match", 2, counter.size());
+		Assert.assertEquals("count of a should match", 0, counter.get("a"));
+		Assert.assertEquals("count of b should match", 2, counter.get("b"));
+	}
+	
+	@Test
+	public void removeLowestWithTies() throws Exception {
+		// SETUP
+		StringCounter counter = new StringCounter();
+		counter.add("a", 1);
+		counter.add("b", 1);
+		counter.add("c", 1);
+		counter.add("d", 1);
+		counter.add("e", 2);
+		
+		// EXEC
+		long removedCount = counter.removeLowest(2);
+		
+		// VERIFY
+		Assert.assertEquals("removed count should match", 1, removedCount);
+		Assert.assertEquals("size should match", 3, counter.size());
+		Assert.assertEquals("count of e should match", 2, counter.get("e"));
+	}
+	
+	@Test
+	public void pruneKeepsHalfWhenCountsTie() throws Exception {
+		// SETUP
+		NgramCounter counter = new NgramCounter(4, 4, 1024);
+		String text = "abcde";
+		
+		// EXEC
+		for (int i = 0; i < text.length(); i++) {
+			counter.add(text, i, i + 1);
+		}
+		
+		// VERIFY
+		Assert.assertFalse("Should not be exact", counter.isExact());
+		Assert.assertEquals("key count should match", 3, counter.findTop(10).length);
+	}
+	
+	@Test
+	public void mergePrunes() throws Exception {
+		// SETUP
+		NgramCounter counter = new NgramCounter(4, 4, 1024);
+		NgramCounter other = new NgramCounter(4, 4, 1024);
+		String text = "abcdefgh";
+		for (int i = 0; i < 4; i++) {
+			counter.add(text, i, i + 1);
+			other.add(text, i + 4, i + 5);
+		}
+		other.add(text, 7, 8);
+		
+		// EXEC
+		counter.merge(other);
+		
+		// VERIFY
+		Assert.assertFalse("Should not be exact", counter.isExact());
+		Assert.assertEquals("key count should match", 4, counter.findTop(10).length);
+		Assert.assertEquals("top should match", "h", counter.findTop(1)[0]);
+	}
+	
+	@Test
+	public void sketchKeepsFrequentStrings() throws Exception {
+		// SETUP
+		NgramCounter counter = new NgramCounter(4, 4, 1024);
+		
+		// EXEC
+		for (int i = 0; i < 100; i++) {
+			counter.add("frequent", 0, 8);
+			counter.add("rare" + i, 0, 4 + Integer.toString(i).length());
+		}
+		String[] top = counter.findTop(1);
+		
+		// VERIFY
+		Assert.assertFalse("Should not be exact", counter.isExact());
+		Assert.assertArrayEquals("top should match", new String[] {"frequent"}, top);
+		Assert.assertTrue("count should be at least 100", counter.getCount("frequent") >= 100);
+	}
+}
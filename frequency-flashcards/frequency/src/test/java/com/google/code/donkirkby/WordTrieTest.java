@@ -0,0 +1,84 @@
+package com.google.code.donkirkby;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WordTrieTest {
+	@Test
+	public void exactLookup() throws Exception {
+		// SETUP
+		WordTrie trie = createTrie("ab", 1, "abc", 2, "b", 3);
+		
+		// EXEC
+		int rankAb = trie.getRank(trie.indexOf("ab"));
+		int rankAbc = trie.getRank(trie.indexOf("abc"));
+		int rankB = trie.getRank(trie.indexOf("b"));
+		int indexA = trie.indexOf("a");
+		int indexAbcd = trie.indexOf("abcd");
+		
+		// VERIFY
+		Assert.assertEquals("rank of ab", 1, rankAb);
+		Assert.assertEquals("rank of abc", 2, rankAbc);
+		Assert.assertEquals("rank of b", 3, rankB);
+		Assert.assertEquals("index of prefix a", -1, indexA);
+		Assert.assertEquals("index of abcd", -1, indexAbcd);
+		Assert.assertEquals("size", 3, trie.size());
+	}
+	
+	@Test
+	public void lookupInsideText() throws Exception {
+		// SETUP
+		WordTrie trie = createTrie("ab", 1, "abc", 2);
+		
+		// EXEC
+		int index = trie.indexOf("xabcx", 1, 3);
+		
+		// VERIFY
+		Assert.assertEquals("rank", 1, trie.getRank(index));
+	}
+	
+	@Test
+	public void longestMatch() throws Exception {
+		// SETUP
+		WordTrie trie = createTrie("我們", 1, "我們的", 2, "的", 3);
+		
+		// EXEC
+		int length1 = trie.findLongestMatch("我們的書", 0);
+		int length2 = trie.findLongestMatch("我們好", 0);
+		int length3 = trie.findLongestMatch("我們的書", 3);
+		int length4 = trie.findLongestMatch("我", 0);
+		
+		// VERIFY
+		Assert.assertEquals("length 1", 3, length1);
+		Assert.assertEquals("length 2", 2, length2);
+		Assert.assertEquals("length 3", 0, length3);
+		Assert.assertEquals("length 4", 0, length4);
+	}
+	
+	@Test
+	public void empty() throws Exception {
+		// SETUP
+		WordTrie trie = createTrie();
+		
+		// EXEC
+		int index = trie.indexOf("a");
+		int length = trie.findLongestMatch("a", 0);
+		
+		// VERIFY
+		Assert.assertEquals("index", -1, index);
+		Assert.assertEquals("length", 0, length);
+	}
+
+	private WordTrie createTrie(Object... wordsAndRanks) {
+		Map<String, Integer> wordRanks = new HashMap<String, Integer>();
+		for (int i = 0; i < wordsAndRanks.length; i += 2) {
+			wordRanks.put(
+					(String)wordsAndRanks[i], 
+					(Integer)wordsAndRanks[i+1]);
+		}
+		return new WordTrie(wordRanks);
+	}
+}
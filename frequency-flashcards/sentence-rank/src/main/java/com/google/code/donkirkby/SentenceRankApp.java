@@ -12,6 +12,7 @@ import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -30,6 +31,8 @@ public class SentenceRankApp {
 	private HashMap<Integer, Sentence> sentenceMap;
 	private HashMap<Integer, ArrayList<Integer>> links;
 	private static int MAX_RANK = 500;
+	private static final int MAX_CHINESE_SENTENCES = 1000000;
+	private static final int RANK_BATCH_SIZE = 65536;
 
 	public static void main(String[] args) {
 		log.info("Starting.");
@@ -214,10 +217,13 @@ public class SentenceRankApp {
 		rankFinder.setWordReader(wordReader);
 		rankFinder.setMaxCharacters(MAX_RANK);
 		rankFinder.load();
-		CharacterClassifier classifier = new CharacterClassifier();
+		BulkRanker ranker = new BulkRanker();
+		ranker.setRankFinder(rankFinder);
 
 		chineseSentences = new ArrayList<Sentence>();
 		sentenceMap = new HashMap<Integer, Sentence>();
+		List<Integer> pendingIds = new ArrayList<Integer>();
+		List<String> pendingTexts = new ArrayList<String>();
 		try
 		{
 			Resource sentenceResource =
@@ -233,20 +239,18 @@ public class SentenceRankApp {
 				while (csvReader.readRecord())
 				{
 					String language = csvReader.get(1);
-					if (language.equals("cmn") && chineseSentences.size() < 1000000)
+					if (language.equals("cmn") && 
+							chineseSentences.size() < MAX_CHINESE_SENTENCES)
 					{
-						String text = csvReader.get(2);
-						int[] ranks = rankFinder.getRanks(text, classifier);
-						Sentence sentence = new Sentence();
-						sentence.setRanks(ranks);
-						int maxRank = sentence.getMaxRank();
-						if (0 < maxRank && maxRank < MAX_RANK)
+						pendingIds.add(Integer.parseInt(csvReader.get(0)));
+						pendingTexts.add(csvReader.get(2));
+						if (pendingTexts.size() >= RANK_BATCH_SIZE)
 						{
-							sentence.setText(text);
-							sentence.setId(Integer.parseInt(csvReader.get(0)));
-							sentence.setChinese(true);
-							chineseSentences.add(sentence);
-							sentenceMap.put(sentence.getId(), sentence);
+							addChineseSentences(
+									ranker, 
+									pendingIds, 
+									pendingTexts, 
+									MAX_RANK);
 						}
 					}
 					else if (language.equals("eng"))
@@ -257,6 +261,7 @@ public class SentenceRankApp {
 						sentenceMap.put(sentence.getId(), sentence);
 					}
 				}
+				addChineseSentences(ranker, pendingIds, pendingTexts, MAX_RANK);
 			}
 			finally
 			{
@@ -269,6 +274,38 @@ public class SentenceRankApp {
 		}
 		Collections.sort(chineseSentences);
 	}
+
+	/**
+	 * Rank a batch of Chinese sentences together, and keep the ones that 
+	 * only use common characters. Clears the batch afterward.
+	 */
+	private void addChineseSentences(
+			BulkRanker ranker,
+			List<Integer> ids,
+			List<String> texts,
+			int MAX_RANK)
+	{
+		PackedRanks ranks = ranker.rank(texts);
+		for (int i = 0; 
+				i < texts.size() && 
+				chineseSentences.size() < MAX_CHINESE_SENTENCES; 
+				i++)
+		{
+			int maxRank = ranks.getMaxRank(i);
+			if (0 < maxRank && maxRank < MAX_RANK)
+			{
+				Sentence sentence = new Sentence();
+				sentence.setRanks(ranks.getRanks(i));
+				sentence.setText(texts.get(i));
+				sentence.setId(ids.get(i));
+				sentence.setChinese(true);
+				chineseSentences.add(sentence);
+				sentenceMap.put(sentence.getId(), sentence);
+			}
+		}
+		ids.clear();
+		texts.clear();
+	}
 	
 	private void loadLinks()
 	{
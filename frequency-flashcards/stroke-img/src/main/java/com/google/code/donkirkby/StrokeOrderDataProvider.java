@@ -20,7 +20,8 @@ import org.apache.commons.logging.LogFactory;
 
 public class StrokeOrderDataProvider {
 
-	private static IStrokeDataDao strokeDataDao;
+	/** Only set once it's fully loaded, so other threads never see it half full. */
+	private static volatile IStrokeDataDao strokeDataDao;
 	private static Log mLogger = LogFactory.getLog(StrokeOrderDataProvider.class);
 	
 	private static void checkLoaded()
@@ -28,23 +29,30 @@ public class StrokeOrderDataProvider {
 		if (strokeDataDao != null)
 			return;
 
-		long time = System.currentTimeMillis();
-		
-		strokeDataDao = new InMemoryStrokeDataDao();
-		try
-		{
-			InputStream is = StrokeOrderDataProvider.class.getResourceAsStream(
-					"/zdtStrokeData.txt");
-			StrokeOrderDataParser parser = new StrokeOrderDataParser(
-					new InputStreamReader(is, "utf-8"), 
-					strokeDataDao);
-			parser.parse();
-		}
-		catch (Exception e)
+		synchronized (StrokeOrderDataProvider.class)
 		{
-			mLogger.fatal("Exception loading stroke data", e);
+			if (strokeDataDao != null)
+				return;
+			
+			long time = System.currentTimeMillis();
+			
+			IStrokeDataDao newDao = new InMemoryStrokeDataDao();
+			try
+			{
+				InputStream is = StrokeOrderDataProvider.class.getResourceAsStream(
+						"/zdtStrokeData.txt");
+				StrokeOrderDataParser parser = new StrokeOrderDataParser(
+						new InputStreamReader(is, "utf-8"), 
+						newDao);
+				parser.parse();
+			}
+			catch (Exception e)
+			{
+				mLogger.fatal("Exception loading stroke data", e);
+			}
+			strokeDataDao = newDao;
+			mLogger.info("Time to parse stroke data " + (System.currentTimeMillis() - time));
 		}
-		mLogger.info("Time to parse stroke data " + (System.currentTimeMillis() - time));
 	}
 	
 	/**